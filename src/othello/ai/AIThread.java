@@ -15,6 +15,7 @@ public class AIThread extends Thread {
 	private int color;							// which player
 	private Controller controller;	// controller
 	private ReversiAI ai;						// AI
+	private boolean pondering = false;	// think on the other player's time
 
 	public AIThread(ReversiAI ai, Controller controller, int color) {
 		if (color == Board.WHITE) {
@@ -28,6 +29,11 @@ public class AIThread extends Thread {
 		this.ai = ai;
 	}
 
+	// search while the other player thinks (see ReversiAI.ponder)
+	public void setPondering(boolean pondering) {
+		this.pondering = pondering;
+	}
+
 	@Override
 	public void run() {
 		synchronized(this) {
@@ -47,12 +53,18 @@ public class AIThread extends Thread {
 					
 					if(controller.getBoard().getActive() != color) {
 						log("Waiting for other player.");
-						syncObject.wait();						
+						Board waiting = controller.getBoard();
+						if(pondering) ai.ponder(waiting);
+						// keep pondering through wake-ups that aren't the other player's move
+						do {
+							syncObject.wait();
+						} while(pondering && !opponentMoved(waiting));
 					}
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 				}
 			}
+			ai.stopPondering(); // results are kept for nextMove
 
 			// Check to make sure it's our turn.
 			log("Woke up checking turn...");
@@ -61,9 +73,10 @@ public class AIThread extends Thread {
 				long start = System.currentTimeMillis();
 				
 				log("My turn making a move yo.");
-				Point lastMove = controller.getBoard().getLastPlayerMove();
+				// the other player's move, which the engine can use to pick up its last search
+				Point lastMove = controller.getBoard().getLastOpponentMove();
 				if (lastMove == null) {
-					lastMove = new Point(0, 0);
+					lastMove = new Point(-1, -1);
 				}
 
 				ai.nextMove(controller.getBoard(), lastMove.x, lastMove.y);
@@ -95,6 +108,13 @@ public class AIThread extends Thread {
 		}
 	}
 	
+	// true once the other player has moved on 'waiting' (or the game has ended or been
+	// replaced), so there is a new position to play from
+	private boolean opponentMoved(Board waiting) {
+		Board b = controller.getBoard();
+		return b != waiting || b.gameOver() || b.getActive() == color;
+	}
+
 	public static void hurryUp() {
 		REALTIME_PLAY = true;
 	}
@@ -0,0 +1,392 @@
+package othello.ai;
+
+import java.util.Random;
+
+import othello.model.Board;
+
+// base class for the alpha-beta engines - each one is a NegamaxSearch with its own
+// evaluation and move order, searched to a fixed depth
+// close to the end of the game they switch to the EndgameSolver and play perfectly instead
+public abstract class AlphaBetaAI extends ReversiAI
+{
+	// score of the board from the side to move's point of view
+	protected static final Evaluator DISC_COUNT = new Evaluator() {
+		public int evaluate(Board b) { return b.getScore(); }
+	};
+
+	// moves in square order (y * size + x)
+	protected static final MoveOrderer SQUARE_ORDER = new MoveOrderer() {
+		public int order(Board b, long moves, int ply, int[] out)
+		{
+			int count = 0;
+			for(; moves != 0; moves &= moves - 1) out[count++] = Long.numberOfTrailingZeros(moves);
+			return count;
+		}
+	};
+
+	public static final int DEFAULT_ENDGAME_EMPTIES = 12;
+
+	protected int maxDepth;
+	protected Random r = new Random();
+	protected NegamaxSearch search;
+	protected boolean deterministic;
+	private ParallelRootSearch parallel; // null when searching on one thread
+	private LazySMP smp; // null without helper threads
+	private EndgameSolver solver; // created the first time it is needed
+	private final int endgameTableMB; // size of its table
+	private ParallelEndgameSolver parallelSolver; // null to solve on one thread
+	private int endgameEmpties = DEFAULT_ENDGAME_EMPTIES; // solve exactly with this many empty squares or fewer
+	private int wldEmpties = 0; // solve for win / loss / draw only with this many or fewer
+
+	private int lastScore = NegamaxSearch.NO_GUESS; // root score of our previous move
+	private int[] rootMoves = new int[64];
+
+	// what the previous move's search expected - the board we left the opponent, and the
+	// principal variation from it (pv[0] our move, pv[1] the reply, pv[2] our answer ...)
+	private static final int PV_LENGTH = 8;
+	private Board lastPlayed;
+	private int[] pv = new int[PV_LENGTH];
+	private int pvLength = 0;
+
+	// pondering - a background search of the opponent's replies, and the moves it has settled
+	// on for them so far (one per reply, only read once the thread has been joined)
+	private Thread ponderThread;
+	private NegamaxSearch ponderSearch;
+	private long ponderStart;
+	private Board[] ponderBoards = new Board[64];
+	private int[] ponderMoves = new int[64];
+	private int[] ponderScores = new int[64];
+	private int ponderCount = 0;
+
+	// tableSizeMB is the transposition table size - 0 to search without one. the endgame
+	// solver's table is no bigger (but always there)
+	protected AlphaBetaAI(int depth, boolean deterministic, int tableSizeMB, Evaluator evaluator, MoveOrderer orderer)
+	{
+		maxDepth = depth;
+		endgameTableMB = Math.max(Math.min(tableSizeMB, EndgameSolver.DEFAULT_SIZE_MB), 1);
+		this.deterministic = deterministic;
+		if(deterministic) r = new Random(seed = SEED);
+		search = new NegamaxSearch(evaluator, orderer,
+				(tableSizeMB > 0) ? new TranspositionTable(tableSizeMB) : null);
+	}
+
+	// share a transposition table (e.g. between threads), or pass null to disable it
+	public void setTranspositionTable(TranspositionTable tt) { search.setTranspositionTable(tt); }
+
+	public void setAspirationWindow(int width) { search.setAspirationWindow(width); }
+
+	// order moves by table move, killers and history on top of the engine's static order (on by default)
+	public void setHistoryOrdering(boolean on) { search.setHistory(on ? new HistoryTable() : null); }
+
+	// selective pruning with parameters calibrated for this engine's evaluator (ProbCut.calibrate), null for none
+	public void setProbCut(ProbCut probCut) { search.setProbCut(probCut); }
+
+	public int getDepth() { return maxDepth; }
+
+	// search the root moves on this many threads (1 to search serially)
+	// a deterministic engine without ProbCut picks the same moves whatever the thread timing,
+	// but not necessarily the moves it would pick with another number of threads
+	public void setParallelism(int threads)
+	{
+		if(parallel != null) parallel.shutdown();
+		parallel = (threads > 1) ? new ParallelRootSearch(search, threads, deterministic) : null;
+		search.setExactDepth(deterministic && (parallel != null || smp != null));
+	}
+
+	public int getParallelism() { return (parallel == null) ? 1 : parallel.getParallelism(); }
+
+	// run this many lazy SMP helper threads alongside the search (0 for none). they share the
+	// transposition table, so it needs one. a deterministic engine only takes table entries of
+	// the exact depth, so its moves still don't depend on what the helpers got to
+	public void setHelperThreads(int helpers)
+	{
+		if(helpers > 0 && search.getTranspositionTable() == null)
+			throw new IllegalStateException("Helper threads need a transposition table");
+
+		if(smp != null) smp.shutdown();
+		smp = (helpers > 0) ? new LazySMP(search, helpers) : null;
+		search.setExactDepth(deterministic && (parallel != null || smp != null));
+	}
+
+	public int getHelperThreads() { return (smp == null) ? 0 : smp.getHelpers(); }
+
+	// solve the game exactly from this many empty squares down (0 to never solve)
+	public void setEndgameEmpties(int empties) { endgameEmpties = empties; }
+	public int getEndgameEmpties() { return endgameEmpties; }
+
+	// above the exact solve, only solve for a win / draw / loss from this many empty squares down
+	public void setWinLossDrawEmpties(int empties) { wldEmpties = empties; }
+	public int getWinLossDrawEmpties() { return wldEmpties; }
+
+	// solve the endgame on this many threads (1 for one) - only worth it for 20 or so empties up
+	// only the time budget applies to a parallel solve, not the node budget
+	public void setEndgameParallelism(int threads)
+	{
+		if(parallelSolver != null) parallelSolver.shutdown();
+		parallelSolver = (threads > 1) ? new ParallelEndgameSolver(threads) : null;
+	}
+
+	public int getEndgameParallelism() { return (parallelSolver == null) ? 1 : parallelSolver.getParallelism(); }
+
+	// lastx, lasty is the opponent's move (-1 if none) - if it was played from the board our
+	// last move left, the search resumes from that subtree: its best move is tried first, and
+	// the table entries, history and aspiration guess carry over
+	public Board nextMove(Board prev, int lastx, int lasty)
+	{
+		startTimer();
+		stopPondering();
+		for(int i = 0; i < ponderCount; i++)
+		{
+			if(ponderBoards[i].equals(prev)) // predicted this one, and searched it to full depth already
+			{
+				lastScore = ponderScores[i];
+				ponderCount = 0;
+				return finish(prev, ponderMoves[i]);
+			}
+		}
+		ponderCount = 0;
+
+		Board b = new Board(prev);
+		int square = solveEndgame(b);
+		if(square != -1)
+		{
+			lastScore = NegamaxSearch.NO_GUESS; // disc difference, not the evaluator's scale
+			return finish(prev, square);
+		}
+
+		int hint = resume(prev, lastx, lasty);
+		search.resetNodes();
+		if(parallel != null) parallel.resetNodes();
+		TranspositionTable tt = search.getTranspositionTable();
+		if(tt != null) tt.newSearch();
+		if(search.getHistory() != null) search.getHistory().age();
+
+		if(smp != null)
+		{
+			smp.resetNodes();
+			if(timeBudget > 0) search.setLimits(System.currentTimeMillis() + timeBudget, 0); // so helpers stop in time too
+			smp.start(b, maxDepth);
+			search.clearLimits();
+		}
+
+		if(timeBudget > 0 || nodeBudget > 0) square = deepen(b, hint);
+		else
+		{
+			int count = search.getMoveOrderer().order(b, b.getMoveMask(), 0, rootMoves);
+			moveToFront(rootMoves, count, hint);
+			square = searchRoot(b, rootMoves, count, maxDepth, lastScore);
+		}
+		lastScore = (square == -1) ? NegamaxSearch.NO_GUESS : rootScore();
+
+		movecount += (parallel != null) ? parallel.getNodes() : search.getNodes();
+		if(smp != null)
+		{
+			smp.stop();
+			movecount += smp.getNodes();
+		}
+		return finish(prev, square);
+	}
+
+	// the move to try first at 'prev', if the opponent's move lastx, lasty led to it from the board
+	// our last move left - our answer from the principal variation if they played the reply it
+	// expected, otherwise the best move the table has for the subtree they went into. -1 if none
+	private int resume(Board prev, int lastx, int lasty)
+	{
+		if(lastPlayed == null || lastx < 0) return -1;
+
+		Board after = new Board(lastPlayed);
+		if(!after.move(lastx, lasty)) return -1;
+		after.turn();
+		if(!after.equals(prev)) return -1;
+
+		if(pvLength > 2 && pv[1] == lasty * size + lastx) return pv[2];
+		TranspositionTable tt = search.getTranspositionTable();
+		return (tt != null) ? TranspositionTable.move(tt.probe(prev.getHash())) : -1;
+	}
+
+	// play 'square', remembering the board it leaves and the principal variation from the table
+	private Board finish(Board prev, int square)
+	{
+		Board next = playMove(prev, square);
+		lastPlayed = null;
+		pvLength = 0;
+		if(next != null)
+		{
+			lastPlayed = new Board(next);
+			lastPlayed.turn();
+			pv[pvLength++] = square;
+
+			TranspositionTable tt = search.getTranspositionTable();
+			Board w = new Board(lastPlayed);
+			while(tt != null && pvLength < PV_LENGTH)
+			{
+				int m = TranspositionTable.move(tt.probe(w.getHash()));
+				if(m == -1 || !w.move(m)) break;
+				w.turn();
+				pv[pvLength++] = m;
+			}
+		}
+		stopTimer();
+		return next;
+	}
+
+	// search the opponent's replies on a background thread, the one our last search expected
+	// first, each to full depth. results go into the shared transposition table, and a finished
+	// reply is played straight away by nextMove if the opponent picks it. a pondered move breaks
+	// ties with the ponder thread's own Random, so deterministic engines should not ponder
+	public void ponder(Board b)
+	{
+		stopPondering();
+		ponderCount = 0;
+		if(b.getMoves() - 1 <= Math.max(endgameEmpties, wldEmpties)) return; // the solver takes over
+
+		final Board pos = new Board(b);
+		final NegamaxSearch s = search.fork();
+		s.clearLimits();
+		ponderSearch = s;
+		ponderStart = System.currentTimeMillis();
+
+		ponderThread = new Thread(new Runnable() {
+			public void run() { think(s, pos); }
+		}, "Ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+	public void stopPondering()
+	{
+		if(ponderThread == null) return;
+
+		ponderSearch.stop();
+		try {
+			ponderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		pondernodes += ponderSearch.getNodes();
+		ponderElapsed += (double)(System.currentTimeMillis() - ponderStart) / 1000;
+		ponderThread = null;
+		ponderSearch = null;
+	}
+
+	// body of the ponder thread
+	private void think(NegamaxSearch s, Board pos)
+	{
+		long legal = pos.getMoveMask();
+		int[] replies = new int[64], moves = new int[64];
+		int count = s.getMoveOrderer().order(pos, legal, 0, replies);
+		if(legal == 0) replies[count++] = -1; // the opponent has to pass
+
+		TranspositionTable tt = s.getTranspositionTable();
+		if(tt != null) moveToFront(replies, count, TranspositionTable.move(tt.probe(pos.getHash())));
+
+		Random pr = new Random(SEED);
+		for(int i = 0; i < count; i++)
+		{
+			Board next = new Board(pos);
+			if(replies[i] != -1) next.move(replies[i]);
+			next.turn();
+
+			int n = s.getMoveOrderer().order(next, next.getMoveMask(), 0, moves);
+			if(n == 0) continue;
+
+			int best = -1, score = NegamaxSearch.NO_GUESS;
+			for(int depth = 1; depth <= maxDepth; depth++)
+			{
+				if(best != -1) moveToFront(moves, n, best);
+				int square = s.searchRoot(next, moves, n, depth, pr, OVERRIDE, score);
+				if(s.isAborted()) return;
+
+				best = square;
+				score = s.getRootScore();
+			}
+
+			ponderBoards[ponderCount] = next;
+			ponderMoves[ponderCount] = best;
+			ponderScores[ponderCount] = score;
+			ponderCount++;
+		}
+	}
+
+	// the endgame solver's move, if the position is close enough to the end to solve
+	// -1 if it isn't, there is no legal move, or the solve ran out of budget - then search as usual
+	protected int solveEndgame(Board b)
+	{
+		int empties = b.getMoves();
+		if(empties > Math.max(endgameEmpties, wldEmpties) || b.getMoveMask() == 0) return -1;
+
+		long deadline = (timeBudget > 0) ? System.currentTimeMillis() + timeBudget : 0;
+		boolean wld = empties > endgameEmpties;
+		if(parallelSolver != null)
+		{
+			parallelSolver.getTranspositionTable().newSearch();
+			parallelSolver.resetNodes();
+			parallelSolver.setDeadline(deadline);
+
+			int count = parallelSolver.order(b, rootMoves);
+			int square = parallelSolver.searchRoot(b, rootMoves, count, wld, r, OVERRIDE);
+			movecount += parallelSolver.getNodes();
+			return parallelSolver.isAborted() ? -1 : square;
+		}
+
+		if(solver == null) solver = new EndgameSolver(new TranspositionTable(endgameTableMB));
+		solver.getTranspositionTable().newSearch();
+		solver.resetNodes();
+		solver.setLimits(deadline, nodeBudget);
+
+		int count = solver.order(b, rootMoves);
+		int square = solver.searchRoot(b, rootMoves, count, wld, r, OVERRIDE);
+		movecount += solver.getNodes();
+		return solver.isAborted() ? -1 : square;
+	}
+
+	// root search on one thread or several
+	protected int searchRoot(Board b, int[] moves, int count, int depth, int guess)
+	{
+		if(parallel != null) return parallel.searchRoot(b, moves, count, depth, r, OVERRIDE, guess);
+		else return search.searchRoot(b, moves, count, depth, r, OVERRIDE, guess);
+	}
+
+	protected boolean rootAborted() { return (parallel != null) ? parallel.isAborted() : search.isAborted(); }
+	protected int rootScore() { return (parallel != null) ? parallel.getRootScore() : search.getRootScore(); }
+
+	// iterative deepening within the time / node budget, up to maxDepth plies
+	// each iteration tries the previous one's best move first, and an iteration that runs out
+	// of budget is thrown away. depth 1 always completes, so there is always a move to play
+	// 'hint' (or -1) is tried first in the first iteration
+	protected int deepen(Board b, int hint)
+	{
+		long deadline = (timeBudget > 0) ? System.currentTimeMillis() + timeBudget : 0;
+		int count = search.getMoveOrderer().order(b, b.getMoveMask(), 0, rootMoves);
+		int best = -1, score = lastScore; // root score of the last completed iteration
+		moveToFront(rootMoves, count, hint);
+
+		search.clearLimits();
+		for(int depth = 1; depth <= maxDepth && count > 0; depth++)
+		{
+			if(best != -1) moveToFront(rootMoves, count, best);
+
+			int square = searchRoot(b, rootMoves, count, depth, score);
+			if(rootAborted()) break;
+
+			best = square;
+			score = rootScore();
+			if(depth == 1) search.setLimits(deadline, nodeBudget);
+		}
+		search.clearLimits();
+		return best;
+	}
+
+	private static void moveToFront(int[] moves, int count, int square)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			if(moves[i] == square)
+			{
+				System.arraycopy(moves, 0, moves, 1, i);
+				moves[0] = square;
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,421 @@
+package othello.ai;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import othello.model.Board;
+
+// perfect play search to the end of the game
+//
+// scores are final disc differences (side to move minus opponent, as Board.getScore()), and
+// solveWLD() only asks whether the side to move wins, loses or draws, which the null window
+// around 0 makes much cheaper
+//
+// works on the raw bitboards rather than a Board. move order is
+//  - the cached best move first, then fewest opponent replies (fastest first) while there
+//    are more than FASTEST_FIRST_EMPTIES empty squares
+//  - below that, squares in quadrants with an odd number of empties first (parity)
+//  - the last four empty squares are searched by hand-unrolled code with no move generation
+//
+// positions with at least CACHE_EMPTIES empties are kept in a transposition table. its keys
+// are hashes of the two bitboards, not Zobrist keys, so it must not be shared with a NegamaxSearch
+// not thread-safe - use one instance per searching thread
+public class EndgameSolver
+{
+	public static final int DEFAULT_SIZE_MB = 4;
+
+	static final int INF = 65; // beyond any disc difference
+	static final int CACHE_EMPTIES = 7;
+	private static final int FASTEST_FIRST_EMPTIES = 8;
+	private static final int CHECK_INTERVAL = 1023; // nodes between checks of the clock
+
+	private final TranspositionTable tt; // null if disabled
+
+	private int size = 0;
+	private long full; // every square of the board
+	private final long[] quadrants = new long[4];
+	private final int[][] buffers = new int[65][64]; // move list for each number of empties
+	private final int[][] keys = new int[65][64]; // sort keys for the move lists
+	private long nodes = 0;
+	private int rootScore = 0;
+
+	private long deadline = 0; // System.currentTimeMillis() to stop at, 0 for no limit
+	private long maxNodes = 0; // nodes to stop at, 0 for no limit
+	private boolean aborted = false;
+	private volatile boolean stopped = false; // set by stop(), from another thread
+	private AtomicBoolean cancel = null; // polled with the clock - a set flag aborts the solve
+
+	public EndgameSolver() { this(new TranspositionTable(DEFAULT_SIZE_MB)); }
+
+	// tt caches solved positions - null to solve without one
+	public EndgameSolver(TranspositionTable tt) { this.tt = tt; }
+
+	public TranspositionTable getTranspositionTable() { return tt; }
+
+	public long getNodes() { return nodes; }
+	public void resetNodes() { nodes = 0; }
+
+	// same as NegamaxSearch - 0 for no limit, and clears the aborted flag
+	public void setLimits(long deadline, long maxNodes)
+	{
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		aborted = false;
+	}
+
+	public void clearLimits() { setLimits(0, 0); }
+	public void stop() { stopped = true; }
+
+	// abort once 'cancel' is set (null for no flag) - lets ParallelEndgameSolver call off one
+	// split of the tree without stopping the solver for good
+	void setCancel(AtomicBoolean cancel) { this.cancel = cancel; }
+
+	// true if the last solve ran out of time or nodes - its result should be dropped
+	public boolean isAborted() { return aborted; }
+
+	// score of the move returned by the last searchRoot call
+	public int getRootScore() { return rootScore; }
+
+	// final disc difference with perfect play from both sides
+	public int solve(Board b) { return solve(b, -INF, INF); }
+
+	// 1 if the side to move wins with perfect play, 0 for a draw, -1 if it loses
+	public int solveWLD(Board b) { return Integer.signum(solve(b, -1, 1)); }
+
+	// fail-soft solve with window (alpha, beta) - the score is exact if it lies inside the window
+	public int solve(Board b, int alpha, int beta)
+	{
+		setSize(b.getSize());
+		return solve(b.getPieces(true), b.getPieces(false), alpha, beta, false);
+	}
+
+	// solve() on raw bitboards - 'passed' if the opponent has just passed
+	int solve(long player, long opponent, int size, int alpha, int beta, boolean passed)
+	{
+		setSize(size);
+		return solve(player, opponent, alpha, beta, passed);
+	}
+
+	// order() on raw bitboards, with 'first' (if legal) at the front
+	int order(long player, long opponent, int size, int first, int[] out)
+	{
+		setSize(size);
+		long empty = full & ~(player | opponent);
+		return order(player, opponent, Board.moves(player, opponent, size), empty, Long.bitCount(empty), first, out);
+	}
+
+	// the legal moves of the side to move, in the order the solver would try them
+	public int order(Board b, int[] out)
+	{
+		setSize(b.getSize());
+		long player = b.getPieces(true), opponent = b.getPieces(false);
+		long empty = full & ~(player | opponent);
+		return order(player, opponent, Board.moves(player, opponent, size), empty, Long.bitCount(empty), -1, out);
+	}
+
+	// same contract as NegamaxSearch.searchRoot, searched to the end of the game. with wld set
+	// the root scores are only 1, 0 or -1, and every move with the best outcome counts as a tie
+	public int searchRoot(Board b, int[] moves, int count, boolean wld, Random r, double override)
+	{
+		if(count == 0) return -1;
+		setSize(b.getSize());
+		long player = b.getPieces(true), opponent = b.getPieces(false);
+
+		int best = moves[0];
+		int bestScore = wld ? Integer.signum(solveMove(player, opponent, best, -1, 1))
+				: solveMove(player, opponent, best, -INF, INF);
+		if(aborted) return best;
+
+		for(int i = 1; i < count; i++)
+		{
+			int square = moves[i], score;
+			if(wld) score = Integer.signum(solveMove(player, opponent, square, -1, 1));
+			else
+			{
+				// null window just below the best, so that ties are found as well as better moves
+				score = solveMove(player, opponent, square, bestScore - 1, bestScore);
+				if(score >= bestScore) score = solveMove(player, opponent, square, bestScore - 1, INF);
+			}
+			if(aborted) return best;
+
+			if(score > bestScore || (score == bestScore && r.nextDouble() < override))
+			{
+				best = square;
+				bestScore = score;
+			}
+		}
+
+		rootScore = bestScore;
+		return best;
+	}
+
+	// score for 'player' of moving to 'square'
+	private int solveMove(long player, long opponent, int square, int alpha, int beta)
+	{
+		long flipped = Board.flips(player, opponent, square, size);
+		return -solve(opponent & ~flipped, player | flipped | (1L << square), -beta, -alpha, false);
+	}
+
+	// 'passed' is set if the opponent has just passed, so the game is over if we can't move either
+	private int solve(long player, long opponent, int alpha, int beta, boolean passed)
+	{
+		long empty = full & ~(player | opponent);
+		int empties = Long.bitCount(empty);
+		if(empties <= 4) return solveLast(player, opponent, alpha, beta, empty, empties, passed);
+
+		nodes++;
+		if(aborted) return 0;
+		if((nodes & CHECK_INTERVAL) == 0 && outOfBudget())
+		{
+			aborted = true;
+			return 0;
+		}
+
+		long legal = Board.moves(player, opponent, size);
+		if(legal == 0)
+		{
+			if(passed) return Long.bitCount(player) - Long.bitCount(opponent);
+			return -solve(opponent, player, -beta, -alpha, true);
+		}
+
+		long key = 0, entry = 0;
+		boolean cached = tt != null && empties >= CACHE_EMPTIES;
+		if(cached)
+		{
+			key = key(player, opponent);
+			entry = tt.probe(key);
+			if(TranspositionTable.cuts(entry, empties, alpha, beta)) return TranspositionTable.score(entry);
+		}
+
+		int[] moves = buffers[empties];
+		int count = order(player, opponent, legal, empty, empties, TranspositionTable.move(entry), moves);
+		int bestScore = -INF, best = -1, alpha0 = alpha;
+
+		for(int i = 0; i < count; i++)
+		{
+			int square = moves[i];
+			long flipped = Board.flips(player, opponent, square, size);
+			long p = opponent & ~flipped, o = player | flipped | (1L << square);
+
+			int score;
+			if(i == 0) score = -solve(p, o, -beta, -alpha, false);
+			else
+			{
+				score = -solve(p, o, -alpha - 1, -alpha, false);
+				if(score > alpha && score < beta) score = -solve(p, o, -beta, -alpha, false);
+			}
+			if(aborted) return 0;
+
+			if(score > bestScore)
+			{
+				bestScore = score;
+				best = square;
+				if(score > alpha) alpha = score;
+				if(alpha >= beta) break;
+			}
+		}
+
+		if(cached) tt.store(key, empties, TranspositionTable.bound(bestScore, alpha0, beta), bestScore, best);
+		return bestScore;
+	}
+
+	// move list for a node - 'first' (if legal) goes to the front
+	private int order(long player, long opponent, long legal, long empty, int empties, int first, int[] out)
+	{
+		long odd = oddQuadrants(empty);
+		int count = 0;
+		if(first >= 0 && (legal & (1L << first)) != 0)
+		{
+			out[count++] = first;
+			legal &= ~(1L << first);
+		}
+
+		if(empties <= FASTEST_FIRST_EMPTIES)
+		{
+			for(long m = legal & odd; m != 0; m &= m - 1) out[count++] = Long.numberOfTrailingZeros(m);
+			for(long m = legal & ~odd; m != 0; m &= m - 1) out[count++] = Long.numberOfTrailingZeros(m);
+			return count;
+		}
+
+		// fastest first - fewest replies, then odd quadrants, by insertion sort
+		int[] k = keys[empties];
+		int start = count;
+		for(long m = legal; m != 0; m &= m - 1)
+		{
+			int square = Long.numberOfTrailingZeros(m);
+			long flipped = Board.flips(player, opponent, square, size);
+			long replies = Board.moves(opponent & ~flipped, player | flipped | (1L << square), size);
+			int key = 2 * Long.bitCount(replies) + (int)((~odd >>> square) & 1L);
+
+			int j = count++;
+			for(; j > start && k[j - 1] > key; j--)
+			{
+				k[j] = k[j - 1];
+				out[j] = out[j - 1];
+			}
+			k[j] = key;
+			out[j] = square;
+		}
+		return count;
+	}
+
+	// the last few empties - pick the squares out of the mask (odd quadrants first) and hand
+	// them to the unrolled solvers below
+	private int solveLast(long player, long opponent, int alpha, int beta, long empty, int empties, boolean passed)
+	{
+		if(empties == 0)
+		{
+			nodes++;
+			return Long.bitCount(player) - Long.bitCount(opponent);
+		}
+		if(empties == 1) return solve1(player, opponent, Long.numberOfTrailingZeros(empty));
+
+		int[] s = buffers[empties];
+		long odd = oddQuadrants(empty);
+		int n = 0;
+		for(long m = empty & odd; m != 0; m &= m - 1) s[n++] = Long.numberOfTrailingZeros(m);
+		for(long m = empty & ~odd; m != 0; m &= m - 1) s[n++] = Long.numberOfTrailingZeros(m);
+
+		if(empties == 2) return solve2(player, opponent, alpha, beta, s[0], s[1], passed);
+		if(empties == 3) return solve3(player, opponent, alpha, beta, s[0], s[1], s[2], passed);
+		return solve4(player, opponent, alpha, beta, s[0], s[1], s[2], s[3], passed);
+	}
+
+	// one empty square - whoever can move there does, and the game is over
+	private int solve1(long player, long opponent, int x)
+	{
+		nodes++;
+		int score = Long.bitCount(player) - Long.bitCount(opponent);
+
+		long flipped = Board.flips(player, opponent, x, size);
+		if(flipped != 0) return score + 2 * Long.bitCount(flipped) + 1;
+
+		flipped = Board.flips(opponent, player, x, size);
+		if(flipped != 0) return score - 2 * Long.bitCount(flipped) - 1;
+
+		return score;
+	}
+
+	private int solve2(long player, long opponent, int alpha, int beta, int x1, int x2, boolean passed)
+	{
+		nodes++;
+		int best = -INF;
+		long flipped;
+
+		if((flipped = Board.flips(player, opponent, x1, size)) != 0)
+		{
+			best = -solve1(opponent & ~flipped, player | flipped | (1L << x1), x2);
+			if(best >= beta) return best;
+		}
+		if((flipped = Board.flips(player, opponent, x2, size)) != 0)
+		{
+			int score = -solve1(opponent & ~flipped, player | flipped | (1L << x2), x1);
+			if(score > best) best = score;
+		}
+
+		if(best != -INF) return best;
+		if(passed) return Long.bitCount(player) - Long.bitCount(opponent);
+		return -solve2(opponent, player, -beta, -alpha, x1, x2, true);
+	}
+
+	private int solve3(long player, long opponent, int alpha, int beta, int x1, int x2, int x3, boolean passed)
+	{
+		nodes++;
+		int best = -INF, score;
+		long flipped;
+
+		if((flipped = Board.flips(player, opponent, x1, size)) != 0)
+		{
+			best = -solve2(opponent & ~flipped, player | flipped | (1L << x1), -beta, -alpha, x2, x3, false);
+			if(best >= beta) return best;
+			if(best > alpha) alpha = best;
+		}
+		if((flipped = Board.flips(player, opponent, x2, size)) != 0)
+		{
+			score = -solve2(opponent & ~flipped, player | flipped | (1L << x2), -beta, -alpha, x1, x3, false);
+			if(score >= beta) return score;
+			if(score > best) best = score;
+			if(score > alpha) alpha = score;
+		}
+		if((flipped = Board.flips(player, opponent, x3, size)) != 0)
+		{
+			score = -solve2(opponent & ~flipped, player | flipped | (1L << x3), -beta, -alpha, x1, x2, false);
+			if(score > best) best = score;
+		}
+
+		if(best != -INF) return best;
+		if(passed) return Long.bitCount(player) - Long.bitCount(opponent);
+		return -solve3(opponent, player, -beta, -alpha, x1, x2, x3, true);
+	}
+
+	private int solve4(long player, long opponent, int alpha, int beta, int x1, int x2, int x3, int x4, boolean passed)
+	{
+		nodes++;
+		int best = -INF, score;
+		long flipped;
+
+		if((flipped = Board.flips(player, opponent, x1, size)) != 0)
+		{
+			best = -solve3(opponent & ~flipped, player | flipped | (1L << x1), -beta, -alpha, x2, x3, x4, false);
+			if(best >= beta) return best;
+			if(best > alpha) alpha = best;
+		}
+		if((flipped = Board.flips(player, opponent, x2, size)) != 0)
+		{
+			score = -solve3(opponent & ~flipped, player | flipped | (1L << x2), -beta, -alpha, x1, x3, x4, false);
+			if(score >= beta) return score;
+			if(score > best) best = score;
+			if(score > alpha) alpha = score;
+		}
+		if((flipped = Board.flips(player, opponent, x3, size)) != 0)
+		{
+			score = -solve3(opponent & ~flipped, player | flipped | (1L << x3), -beta, -alpha, x1, x2, x4, false);
+			if(score >= beta) return score;
+			if(score > best) best = score;
+			if(score > alpha) alpha = score;
+		}
+		if((flipped = Board.flips(player, opponent, x4, size)) != 0)
+		{
+			score = -solve3(opponent & ~flipped, player | flipped | (1L << x4), -beta, -alpha, x1, x2, x3, false);
+			if(score > best) best = score;
+		}
+
+		if(best != -INF) return best;
+		if(passed) return Long.bitCount(player) - Long.bitCount(opponent);
+		return -solve4(opponent, player, -beta, -alpha, x1, x2, x3, x4, true);
+	}
+
+	// union of the quadrants holding an odd number of empty squares
+	private long oddQuadrants(long empty)
+	{
+		long odd = 0;
+		for(int q = 0; q < 4; q++)
+			if((Long.bitCount(empty & quadrants[q]) & 1) != 0) odd |= quadrants[q];
+		return odd;
+	}
+
+	private void setSize(int n)
+	{
+		if(n == size) return;
+
+		size = n;
+		full = (n == 8) ? -1L : (1L << (n * n)) - 1;
+		java.util.Arrays.fill(quadrants, 0);
+		for(int y = 0; y < n; y++)
+			for(int x = 0; x < n; x++)
+				quadrants[(x < n / 2 ? 0 : 1) + (y < n / 2 ? 0 : 2)] |= 1L << (y * n + x);
+	}
+
+	// table key for a position - the side to move doesn't matter, as scores are relative to it
+	static long key(long player, long opponent)
+	{
+		long k = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 29);
+		k = (k ^ (k >>> 31)) * 0xBF58476D1CE4E5B9L;
+		return k ^ (k >>> 29);
+	}
+
+	private boolean outOfBudget()
+	{
+		return stopped || (cancel != null && cancel.get()) || (maxNodes > 0 && nodes >= maxNodes) || (deadline > 0 && System.currentTimeMillis() >= deadline);
+	}
+}
@@ -0,0 +1,11 @@
+package othello.ai;
+
+import othello.model.Board;
+
+// leaf evaluation for NegamaxSearch
+public interface Evaluator
+{
+	// score of the position from the point of view of the side to move (the active player)
+	// - well inside +-NegamaxSearch.WIN_SCORE, which finished games are scored beyond
+	int evaluate(Board b);
+}
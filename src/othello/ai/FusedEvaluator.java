@@ -0,0 +1,72 @@
+package othello.ai;
+
+import othello.ai.heuristic.Heuristic;
+import othello.ai.heuristic.LeafHeuristic;
+import othello.ai.heuristic.LinearHeuristic;
+import othello.model.Board;
+
+// a weighted sum of heuristics, compiled once into a single leaf evaluator
+//
+// the linear heuristics (disc count, square weights ...) are merged into one table of
+// per-square values, so together they cost one pass over the pieces. the others are
+// evaluated one by one, each times its weight. weights are folded in at construction in
+// fixed point - scores are in units of 1 / SCALE - so a leaf is integer arithmetic only,
+// with none of the per-move normalisation PluggableHeuristicAI does
+// immutable, so it can be shared between searching threads
+public class FusedEvaluator implements Evaluator
+{
+	public static final int SCALE = 16;
+
+	private final int size;
+	private final int[] squareValues; // merged linear heuristics, by bit index
+	private final LeafHeuristic[] others; // the rest
+	private final int[] otherWeights; // their weights, times SCALE
+
+	// each heuristic must be a LeafHeuristic - weights[i] goes with heuristics[i]
+	public FusedEvaluator(int size, Heuristic[] heuristics, double[] weights)
+	{
+		if(heuristics.length != weights.length) throw new IllegalArgumentException("One weight is needed per heuristic");
+		this.size = size;
+
+		double[] merged = new double[size * size];
+		int linear = 0;
+		for(Heuristic h : heuristics)
+		{
+			if(h instanceof LinearHeuristic) linear++;
+			else if(!(h instanceof LeafHeuristic)) throw new IllegalArgumentException(h.getClass().getSimpleName() + " can't be used as a leaf evaluation");
+		}
+
+		others = new LeafHeuristic[heuristics.length - linear];
+		otherWeights = new int[others.length];
+		for(int i = 0, k = 0; i < heuristics.length; i++)
+		{
+			if(heuristics[i] instanceof LinearHeuristic)
+			{
+				int[] w = ((LinearHeuristic)heuristics[i]).getSquareWeights(size);
+				for(int square = 0; square < merged.length; square++) merged[square] += weights[i] * w[square];
+			}
+			else
+			{
+				others[k] = (LeafHeuristic)heuristics[i];
+				otherWeights[k++] = (int)Math.round(weights[i] * SCALE);
+			}
+		}
+
+		squareValues = new int[merged.length];
+		for(int square = 0; square < merged.length; square++) squareValues[square] = (int)Math.round(merged[square] * SCALE);
+	}
+
+	public int getSize() { return size; }
+
+	public int evaluate(Board b)
+	{
+		long player = b.getPieces(true), opponent = b.getPieces(false);
+
+		int score = 0;
+		for(long p = player; p != 0; p &= p - 1) score += squareValues[Long.numberOfTrailingZeros(p)];
+		for(long o = opponent; o != 0; o &= o - 1) score -= squareValues[Long.numberOfTrailingZeros(o)];
+
+		for(int k = 0; k < others.length; k++) score += otherWeights[k] * others[k].evaluate(player, opponent);
+		return score;
+	}
+}
@@ -14,7 +14,7 @@ public class GreedyAI extends ReversiAI
   
   public GreedyAI(boolean deterministic)
   {
-  	if(deterministic) r = new Random(SEED);
+  	if(deterministic) r = new Random(seed = SEED);
   }
 	
   public Board nextMove(Board prev, int lastx, int lasty)
@@ -26,7 +26,7 @@ public class GreedyHeuristicAI extends ReversiAI
 	
 	public GreedyHeuristicAI(boolean deterministic)
 	{
-		if(deterministic) r = new Random(SEED);
+		if(deterministic) r = new Random(seed = SEED);
 	}
 
 	public Board nextMove(Board prev, int lastx, int lasty)
@@ -0,0 +1,105 @@
+package othello.ai;
+
+import java.util.Arrays;
+
+// dynamic move ordering for NegamaxSearch, on top of the static MoveOrderer
+//  - the transposition table's best move goes first
+//  - then the killer moves - the last two moves to cause a cutoff at the same ply
+//  - then the rest by history score - how often (weighted by depth) each square has caused
+//    a cutoff for the side to move. equal scores keep the static order
+//
+// everything is kept in int arrays, so ordering a node allocates nothing
+// not thread-safe - each searching thread needs its own copy
+public class HistoryTable
+{
+	private static final int MAX_HISTORY = 1 << 20; // halve every score once one gets this big
+
+	private int[][] killers = new int[0][]; // two per ply, -1 for none
+	private final int[][] history = new int[2][64]; // by side (Board.BLACK / WHITE) and square
+
+	public HistoryTable() {}
+
+	// copy of another table, for a search on another thread
+	public HistoryTable(HistoryTable h)
+	{
+		killers = new int[h.killers.length][];
+		for(int i = 0; i < killers.length; i++) killers[i] = h.killers[i].clone();
+		for(int side = 0; side < 2; side++) System.arraycopy(h.history[side], 0, history[side], 0, 64);
+	}
+
+	// make room for killers down to 'depth' plies
+	public void ensure(int depth)
+	{
+		if(killers.length > depth) return;
+
+		int[][] grown = Arrays.copyOf(killers, depth + 1);
+		for(int i = killers.length; i < grown.length; i++) grown[i] = new int[] { -1, -1 };
+		killers = grown;
+	}
+
+	public void clear()
+	{
+		for(int[] k : killers) Arrays.fill(k, -1);
+		for(int[] h : history) Arrays.fill(h, 0);
+	}
+
+	// between searches - forget the killers (the plies no longer line up) and halve the history
+	public void age()
+	{
+		for(int[] k : killers) Arrays.fill(k, -1);
+		halve();
+	}
+
+	// reorder the first 'count' squares of 'moves' for 'side' to move at 'ply'
+	// 'first' (the table move, or -1) is tried first if it is in the list
+	public void sort(int[] moves, int count, int ply, int side, int first)
+	{
+		int[] k = killers[ply];
+		int start = promote(moves, 0, count, first);
+		start = promote(moves, start, count, k[0]);
+		start = promote(moves, start, count, k[1]);
+
+		// insertion sort on history score - stable, and lists are short
+		int[] h = history[side];
+		for(int i = start + 1; i < count; i++)
+		{
+			int square = moves[i], score = h[square], j = i;
+			for(; j > start && h[moves[j - 1]] < score; j--) moves[j] = moves[j - 1];
+			moves[j] = square;
+		}
+	}
+
+	// 'square' caused a cutoff at 'ply' in a search of 'depth' plies
+	public void cutoff(int square, int ply, int side, int depth)
+	{
+		int[] k = killers[ply];
+		if(k[0] != square)
+		{
+			k[1] = k[0];
+			k[0] = square;
+		}
+		if((history[side][square] += depth * depth) >= MAX_HISTORY) halve();
+	}
+
+	private void halve()
+	{
+		for(int[] h : history)
+			for(int i = 0; i < h.length; i++) h[i] >>= 1;
+	}
+
+	// move 'square' (if it's in moves[start..count)) to moves[start], shifting the ones before it down
+	private static int promote(int[] moves, int start, int count, int square)
+	{
+		if(square < 0) return start;
+		for(int i = start; i < count; i++)
+		{
+			if(moves[i] == square)
+			{
+				System.arraycopy(moves, start, moves, start + 1, i - start);
+				moves[start] = square;
+				return start + 1;
+			}
+		}
+		return start;
+	}
+}
@@ -0,0 +1,24 @@
+package othello.ai;
+
+import othello.model.Board;
+
+// an Evaluator that keeps its own state up to date as NegamaxSearch makes and takes back
+// moves, instead of reading the whole board at every leaf
+//
+// the search calls reset() with the board at the start of each search, play() after each
+// makeMove and undo() before each unmakeMove, and evaluateTracked() at the leaves.
+// evaluate() still works from scratch on any board
+public interface IncrementalEvaluator extends Evaluator
+{
+	void reset(Board b);
+
+	// 'color' (Board.BLACK / WHITE) placed a piece on 'square', capturing 'flipped'
+	void play(int square, long flipped, int color);
+	void undo(int square, long flipped, int color);
+
+	// same as evaluate(b), where b is the board the tracked state describes
+	int evaluateTracked(Board b);
+
+	// an evaluator with its own state, for a search on another thread
+	IncrementalEvaluator copy();
+}
@@ -0,0 +1,113 @@
+package othello.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import othello.model.Board;
+
+// lazy SMP - helper threads search the same position as the main search, at the same time,
+// and share its transposition table. they don't report anything themselves; their table
+// entries let the main search cut off sooner
+//
+// helpers deepen iteratively from staggered depths (odd helpers start a ply deeper) and try
+// the root moves in a rotated order, so they don't all search the same tree in lock step.
+// they are stopped as soon as the main search has its answer
+public class LazySMP
+{
+	private final NegamaxSearch main;
+	private final int helpers;
+	private final ExecutorService pool;
+
+	private final List<NegamaxSearch> running = new ArrayList<NegamaxSearch>();
+	private final List<Future<?>> futures = new ArrayList<Future<?>>();
+	private final AtomicLong helperNodes = new AtomicLong();
+
+	public LazySMP(NegamaxSearch main, int helpers)
+	{
+		this.main = main;
+		this.helpers = helpers;
+		pool = Executors.newFixedThreadPool(helpers, new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "LazySMP-helper-" + (count++));
+				t.setDaemon(true); // never keeps the program alive
+				return t;
+			}
+		});
+	}
+
+	public int getHelpers() { return helpers; }
+
+	public long getNodes() { return helperNodes.get(); }
+	public void resetNodes() { helperNodes.set(0); }
+
+	// set the helpers searching 'b' up to 'maxDepth' plies - call stop() when the main search is done
+	public void start(Board b, final int maxDepth)
+	{
+		for(int i = 0; i < helpers; i++)
+		{
+			final int id = i;
+			final Board board = new Board(b);
+			final NegamaxSearch helper = main.fork();
+			running.add(helper);
+
+			futures.add(pool.submit(new Runnable() {
+				public void run()
+				{
+					int[] moves = new int[64];
+					int count = helper.getMoveOrderer().order(board, board.getMoveMask(), 0, moves);
+					if(count > 1) rotate(moves, count, (id + 1) % count);
+
+					Random r = new Random(id);
+					for(int depth = 1 + (id & 1); depth <= maxDepth && count > 0; depth++)
+					{
+						helper.searchRoot(board, moves, count, depth, r, 0, NegamaxSearch.NO_GUESS);
+						if(helper.isAborted()) break;
+					}
+					helperNodes.addAndGet(helper.getNodes());
+				}
+			}));
+		}
+	}
+
+	// stop the helpers, and wait for them to let go of their boards
+	public void stop()
+	{
+		for(NegamaxSearch helper : running) helper.stop();
+		for(Future<?> f : futures)
+		{
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		running.clear();
+		futures.clear();
+	}
+
+	// stop the helpers and let their threads go - start() can't be called afterwards
+	public void shutdown()
+	{
+		stop();
+		pool.shutdown();
+	}
+
+	private static void rotate(int[] moves, int count, int by)
+	{
+		int[] tmp = new int[count];
+		for(int i = 0; i < count; i++) tmp[i] = moves[(i + by) % count];
+		System.arraycopy(tmp, 0, moves, 0, count);
+	}
+}
@@ -1,18 +1,10 @@
 package othello.ai;
 
-import java.util.*;
-
 import othello.model.Board;
 
 // minimax based AI - uses AB pruning and a board-weight utility function
-public class MinimaxABHeuristicAI extends ReversiAI
+public class MinimaxABHeuristicAI extends AlphaBetaAI implements Evaluator
 {
-	private static final double OVERRIDE = 0.3;
-	
-  private int maxDepth;
-  private int moves;
-  private Random r = new Random();
-  
   public MinimaxABHeuristicAI() { this(DEPTH, false); }
   
   public MinimaxABHeuristicAI(int depth) {
@@ -21,8 +13,14 @@ public class MinimaxABHeuristicAI extends ReversiAI
   
   public MinimaxABHeuristicAI(int depth, boolean deterministic)
   {
-  	if(deterministic) r = new Random(SEED);
-  	maxDepth = depth;
+  	this(depth, deterministic, TranspositionTable.DEFAULT_SIZE_MB);
+  }
+  
+  // tableSizeMB is the transposition table size - 0 to search without one
+  public MinimaxABHeuristicAI(int depth, boolean deterministic, int tableSizeMB)
+  {
+  	super(depth, deterministic, tableSizeMB, null, SQUARE_ORDER);
+  	search.setEvaluator(this);
   }
   
   public int cost(int x, int y)
@@ -54,114 +52,5 @@ public class MinimaxABHeuristicAI extends ReversiAI
 			{  11, -4,  2,  2 }, 
 			{  8,   1,  2, -3 } };
   
-  private int minMove(Board prev, int depth, int alpha, int beta)
-  {
-  	moves++;
-  	if(depth >= maxDepth) return getCost(prev); // exceeded maximum depth
-  	
-  	int minScore = MAX_SCORE;
-  	Board b = new Board(prev);
-  	b.turn(); // min player's turn
-  	
-  	for(int j = 0; j < size; j++)
-  	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(b.move(i, j))
-  			{
-  				b.turn(); // max player's turn
-  				int score = maxMove(b, depth + 1, alpha, beta);
-  				//printMsg(false, depth, score, i, j); // fixme
-  				
-  				if(score < minScore) minScore = score;
-  				if(minScore <= alpha) return minScore;
-  				if(minScore < beta) beta = minScore;
-  				
-  				b = new Board(prev);
-  				b.turn();
-  			}
-  		}
-  	}
-  	
-  	if(minScore == MAX_SCORE) // min player can't make a move
-  	{
-  		b.turn();
-  		if(b.canMove()) return maxMove(b, depth + 1, alpha, beta); // max player can make a move
-  		else return prev.getScore(); // max player can't make a move either - game over
-  	}
-  	
-		return minScore;
-  }
-  
-  private int maxMove(Board prev, int depth, int alpha, int beta)
-  {
-  	moves++;
-  	if(depth >= maxDepth) return getCost(prev); // exceeded maximum depth
-  	
-  	int maxScore = MIN_SCORE;
-  	Board b = new Board(prev);
-  	
-  	for(int j = 0; j < size; j++)
-  	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(b.move(i, j)) // try move
-  			{
-  				int score = minMove(b, depth + 1, alpha, beta);
-  				//printMsg(true, depth, score, i, j); // fixme
-  				
-  				if(score > maxScore)	maxScore = score;
-  				if(maxScore >= beta) return maxScore;
-  				if(maxScore > alpha) alpha = maxScore;
-  				
-  				b = new Board(prev);
-  			}
-  		}
-  	}
-  	
-  	if(maxScore == MIN_SCORE) // no moves found
-  	{
-  		b.turn();
-  		if(b.canMove()) { b.turn(); return minMove(b, depth + 1, alpha, beta); }
-  		else return prev.getScore();
-  	}
-  	
-		return maxScore;
-  }
-
-  public Board nextMove(Board prev, int lastx, int lasty)
-  {
-  	startTimer();
-  	moves = 0;
-  	//long start = System.currentTimeMillis();
-  	int maxScore = MIN_SCORE;
-  	int alpha = MIN_SCORE, beta = MAX_SCORE;
-  	Board best = null, b = new Board(prev);
-  	setMove(-1, -1);
-  	
-  	for(int j = 0; j < size; j++)
-  	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(b.move(i, j))
-  			{
-  				int score = minMove(b, 1, alpha, beta);
-  				//printMsg(true, 0, score, i, j); // fixme
-  				
-  				if(score > maxScore || (score == maxScore && r.nextDouble() < OVERRIDE))
-  				{
-  					setMove(i,j);
-  					maxScore = score;
-  					best = b;
-  				}
-  				b = new Board(prev);
-  			}
-  		}
-  	}
-  	//System.out.println("elapsed: " + ((float)(System.currentTimeMillis()-start)/1000));
-  	//System.out.println("alpha-beta " + b.getMoves() + " moves: " + moves);
-  	movecount += moves;
-  	stopTimer();
-  	return best;
-  }
+  public int evaluate(Board b) { return getCost(b); }
 }
@@ -0,0 +1,37 @@
+package othello.ai;
+
+import othello.model.Board;
+
+// minimax based AI - uses AB pruning and a PatternEvaluator, updated move by move as the
+// search goes rather than re-read at each leaf
+public class MinimaxABPatternAI extends AlphaBetaAI
+{
+  private PatternEvaluator patterns; // for the current board size, made on first use
+  
+  public MinimaxABPatternAI() { this(DEPTH, false); }
+  
+  public MinimaxABPatternAI(int depth, boolean deterministic)
+  {
+  	this(depth, deterministic, TranspositionTable.DEFAULT_SIZE_MB);
+  }
+  
+  // tableSizeMB is the transposition table size - 0 to search without one
+  public MinimaxABPatternAI(int depth, boolean deterministic, int tableSizeMB)
+  {
+  	super(depth, deterministic, tableSizeMB, null, SQUARE_ORDER);
+  	search.setAspirationWindow(NegamaxSearch.DEFAULT_ASPIRATION * PatternEvaluator.SCALE);
+  }
+  
+  // play with these tables (e.g. tuned ones from PatternEvaluator.load) on boards of their size
+  public void setPatterns(PatternEvaluator patterns)
+  {
+  	this.patterns = patterns;
+  	search.setEvaluator(patterns);
+  }
+  
+  public Board nextMove(Board prev, int lastx, int lasty)
+  {
+  	if(patterns == null || patterns.getSize() != size) setPatterns(new PatternEvaluator(size));
+  	return super.nextMove(prev, lastx, lasty);
+  }
+}
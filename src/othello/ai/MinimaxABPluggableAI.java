@@ -0,0 +1,57 @@
+package othello.ai;
+
+import othello.ai.heuristic.BestScore;
+import othello.ai.heuristic.EvalPosition;
+import othello.ai.heuristic.Heuristic;
+import othello.ai.heuristic.Mobility;
+import othello.model.Board;
+
+// minimax based AI - uses AB pruning, with a weighted combination of pluggable heuristics
+// (by default square weights, mobility and disc count) as a FusedEvaluator at the leaves
+public class MinimaxABPluggableAI extends AlphaBetaAI
+{
+  // weights of the default heuristics - a move's worth of mobility is about a good square
+  public static final double POSITION_WEIGHT = 1.0;
+  public static final double MOBILITY_WEIGHT = 2.0;
+  public static final double SCORE_WEIGHT = 0.25;
+  
+  private FusedEvaluator evaluator; // for the current board size, made on first use
+  
+  public MinimaxABPluggableAI() { this(DEPTH, false); }
+  
+  public MinimaxABPluggableAI(int depth, boolean deterministic)
+  {
+  	this(depth, deterministic, TranspositionTable.DEFAULT_SIZE_MB);
+  }
+  
+  // tableSizeMB is the transposition table size - 0 to search without one
+  public MinimaxABPluggableAI(int depth, boolean deterministic, int tableSizeMB)
+  {
+  	super(depth, deterministic, tableSizeMB, null, SQUARE_ORDER);
+  	search.setAspirationWindow(NegamaxSearch.DEFAULT_ASPIRATION * FusedEvaluator.SCALE);
+  }
+  
+  // search with these heuristics and weights instead - each must be a LeafHeuristic made for
+  // the board size being played, and setSize must have been called
+  public void setHeuristics(Heuristic[] heuristics, double[] weights)
+  {
+  	setEvaluator(new FusedEvaluator(size, heuristics, weights));
+  }
+  
+  private void setEvaluator(FusedEvaluator evaluator)
+  {
+  	this.evaluator = evaluator;
+  	search.setEvaluator(evaluator);
+  }
+  
+  public Board nextMove(Board prev, int lastx, int lasty)
+  {
+  	if(evaluator == null || evaluator.getSize() != size)
+  	{
+  		setEvaluator(new FusedEvaluator(size,
+  				new Heuristic[] { new EvalPosition(size), new Mobility(size), new BestScore() },
+  				new double[] { POSITION_WEIGHT, MOBILITY_WEIGHT, SCORE_WEIGHT }));
+  	}
+  	return super.nextMove(prev, lastx, lasty);
+  }
+}
@@ -16,75 +16,71 @@ public class MinimaxAI extends ReversiAI
   public MinimaxAI(int depth, boolean deterministic)
   {
   	maxDepth = depth;
-  	if(deterministic) r = new Random(SEED);
+  	if(deterministic) r = new Random(seed = SEED);
   }
   
-  private int minMove(Board prev, int depth)
+  public int getDepth() { return maxDepth; }
+  
+  // the search runs on a single board, moves are made and taken back in place
+  // the board always has the max player active on entry to minMove and maxMove
+  private int minMove(Board b, int depth)
   {
   	moves++;
-  	if(depth >= maxDepth) return prev.getScore(); // exceeded maximum depth
+  	if(depth >= maxDepth) return b.getScore(); // exceeded maximum depth
   	
   	int minScore = MAX_SCORE;
-  	Board b = new Board(prev);
   	b.turn(); // min player's turn
+  	long legal = b.getMoveMask();
   	
-  	for(int j = 0; j < size; j++)
+  	if(legal == 0) // min player can't make a move
   	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(b.move(i, j))
-  			{
-  				b.turn(); // max player's turn
-  				int score = maxMove(b, depth + 1);
-  				//printMsg(false, depth, score, i, j); // fixme
-  				
-  				if(score < minScore) minScore = score;
-  				
-  				b = new Board(prev);
-  				b.turn();
-  			}
-  		}
+  		b.turn();
+  		if(b.canMove()) return maxMove(b, depth + 1); // max player can make a move
+  		else return b.getScore(); // max player can't make a move either - game over
   	}
   	
-  	if(minScore == MAX_SCORE) // min player can't make a move
+  	while(legal != 0)
   	{
+  		int square = Long.numberOfTrailingZeros(legal);
+  		legal &= legal - 1;
+  		
+  		long flipped = b.makeMove(square);
+  		b.turn(); // max player's turn
+  		int score = maxMove(b, depth + 1);
   		b.turn();
-  		if(b.canMove()) return maxMove(b, depth + 1); // max player can make a move
-  		else return prev.getScore(); // max player can't make a move either - game over
+  		b.unmakeMove(square, flipped);
+  		
+  		if(score < minScore) minScore = score;
   	}
+  	b.turn();
   	
 		return minScore;
   }
   
-  private int maxMove(Board prev, int depth)
+  private int maxMove(Board b, int depth)
   {
   	moves++;
-  	if(depth >= maxDepth) return prev.getScore(); // exceeded maximum depth
+  	if(depth >= maxDepth) return b.getScore(); // exceeded maximum depth
   	
   	int maxScore = MIN_SCORE;
-  	Board b = new Board(prev);
+  	long legal = b.getMoveMask();
   	
-  	for(int j = 0; j < size; j++)
+  	if(legal == 0) // no moves found
   	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(b.move(i, j)) // try move
-  			{
-  				int score = minMove(b, depth + 1);
-  				//printMsg(true, depth, score, i, j); // fixme
-  				
-  				if(score > maxScore)	maxScore = score;
-  				
-  				b = new Board(prev);
-  			}
-  		}
+  		if(b.getMoveMask(false) != 0) return minMove(b, depth + 1);
+  		else return b.getScore();
   	}
   	
-  	if(maxScore == MIN_SCORE) // no moves found
+  	while(legal != 0)
   	{
-  		b.turn();
-  		if(b.canMove()) { b.turn(); return minMove(b, depth + 1); }
-  		else return prev.getScore();
+  		int square = Long.numberOfTrailingZeros(legal);
+  		legal &= legal - 1;
+  		
+  		long flipped = b.makeMove(square); // try move
+  		int score = minMove(b, depth + 1);
+  		b.unmakeMove(square, flipped);
+  		
+  		if(score > maxScore)	maxScore = score;
   	}
   	
 		return maxScore;
@@ -94,35 +90,29 @@ public class MinimaxAI extends ReversiAI
   {
   	startTimer();
   	moves = 0;
-  	//long start = System.currentTimeMillis();
-  	int maxScore = MIN_SCORE;
-  	Board best = null, b = new Board(prev);
-  	setMove(-1, -1);
+  	int maxScore = MIN_SCORE, bestSquare = -1;
+  	Board b = new Board(prev);
+  	setMove(-1);
   	
-  	for(int j = 0; j < size; j++)
+  	long legal = b.getMoveMask();
+  	while(legal != 0)
   	{
-  		for(int i = 0; i < size; i++)
+  		int square = Long.numberOfTrailingZeros(legal);
+  		legal &= legal - 1;
+  		
+  		long flipped = b.makeMove(square);
+  		int score = minMove(b, 1);
+  		b.unmakeMove(square, flipped);
+  		
+  		if(score > maxScore || (score == maxScore && r.nextDouble() < OVERRIDE))
   		{
-  			if(b.move(i, j))
-  			{
-  				int score = minMove(b, 1);
-  				//printMsg(true, 0, score, i, j); // fixme
-  				
-  				if(score > maxScore || (score == maxScore && r.nextDouble() < OVERRIDE))
-  				{
-  					setMove(i,j);
-  					maxScore = score;
-  					best = b;
-  				}
-  				b = new Board(prev);
-  			}
+  			bestSquare = square;
+  			maxScore = score;
   		}
   	}
-  	//System.out.println("elapsed: " + ((float)(System.currentTimeMillis()-start)/1000));
-  	//System.out.println("moves: " + moves);
   	movecount += moves;
   	stopTimer();
-  	return best;
+  	return playMove(prev, bestSquare);
   }
   
   /*private int printMsg(boolean max, int depth, int score, int x, int y)
@@ -1,54 +1,38 @@
 package othello.ai;
 
 
+import othello.ai.heuristic.Mobility;
 import othello.model.Board;
 
+// greedy on mobility - plays the move that leaves the opponent the fewest legal moves, and
+// of those, the fewest empty squares next to our pieces (their potential mobility)
 public class MobilityHeuristicAI extends ReversiAI {
 
 
 	public Board nextMove(Board prev, int lastx, int lasty)
 	{
 		startTimer();
-		Board b = new Board(prev), best = null;
-		Board temp;
-		setMove(-1, -1);
-		  
-		int mobility = 0;
-		int lowestMobility = 100;
+		long player = prev.getPieces(true), opponent = prev.getPieces(false);
+		int best = -1;
+		int lowestMobility = Integer.MAX_VALUE, lowestPotential = Integer.MAX_VALUE;
 		
-		for(int j = 0; j < size; j++)
+		for(long legal = prev.getMoveMask(); legal != 0; legal &= legal - 1)
 		{
-		  for(int i = 0; i < size; i++)
-		  {
-			  if(b.move(i, j)) // valid move
-			  {
-				  temp = new Board(b);
-				  
-				  for(int c = 0; c < size; c++)
-				  {
-					  for(int d = 0; d < size; d++)
-					  {
-						  if(temp.move(d, c)) // valid move
-						  {
-							  mobility++;
-						  }
-						  
-						  temp = new Board(b);
-					  }
-				  }
-				  
-				  if(mobility < lowestMobility) {
-					  lowestMobility = mobility;
-					  mobility = 0;
-					  best = b;
-					  setMove(i, j);
-				  }
-				  
-				  b = new Board(prev);
-			  }
-		  }
-	  }
+			int square = Long.numberOfTrailingZeros(legal);
+			long flipped = Board.flips(player, opponent, square, size);
+			long p = player | flipped | (1L << square), o = opponent & ~flipped;
+			
+			int mobility = Mobility.current(o, p, size), potential = Mobility.potential(o, p, size);
+			if(mobility < lowestMobility || (mobility == lowestMobility && potential < lowestPotential))
+			{
+				lowestMobility = mobility;
+				lowestPotential = potential;
+				best = square;
+			}
+		}
+		
+		Board next = playMove(prev, best);
 		stopTimer();
-	  return best;
+		return next;
 	}
 }
@@ -0,0 +1,11 @@
+package othello.ai;
+
+import othello.model.Board;
+
+// decides the order NegamaxSearch tries moves in
+public interface MoveOrderer
+{
+	// write the squares set in 'moves' (legal moves for the side to move) to 'out',
+	// best candidate first, and return how many were written
+	int order(Board b, long moves, int ply, int[] out);
+}
@@ -0,0 +1,366 @@
+package othello.ai;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import othello.model.Board;
+
+// alpha-beta search core shared by the minimax engines
+//
+// negamax form - every score is from the point of view of the side to move, so one loop
+// covers both players. the first move at each node is searched with the full window, the
+// rest with a null window that is only widened if the move turns out to be better
+// (principal variation search). the root starts from an aspiration window around a guess
+// at the score, and is widened if the result falls outside it. with a ProbCut set, interior
+// nodes are pruned early when a shallow search predicts their result with enough confidence
+//
+// a search can be given a deadline or a node budget, or stopped from another thread - then it unwinds
+// straight away and isAborted() returns true, and the (meaningless) result should be dropped
+//
+// evaluation and the static move order are pluggable, and a HistoryTable (on by default)
+// reorders the moves at each node by table move, killers and history. the board is mutated
+// in place with makeMove/unmakeMove, so a search allocates nothing once its move buffers exist.
+// an IncrementalEvaluator is told about every move made and taken back, and scores the leaves
+// from its own state
+// not thread-safe - use one instance per searching thread
+public class NegamaxSearch
+{
+	public static final int NO_GUESS = Integer.MIN_VALUE; // no aspiration window at the root
+	public static final int DEFAULT_ASPIRATION = 10;
+
+	// a finished game scores WIN_SCORE plus the disc difference (minus both if lost), so a
+	// win beats any evaluation and a bigger win beats a smaller one. evaluators must stay
+	// well inside +-WIN_SCORE
+	public static final int WIN_SCORE = 100000;
+
+	private Evaluator evaluator;
+	private IncrementalEvaluator incremental; // the evaluator, if it tracks moves - otherwise null
+	private MoveOrderer orderer;
+	private TranspositionTable tt; // null if disabled
+	private HistoryTable history = new HistoryTable(); // null for the static order only
+	private ProbCut probCut = null; // null for no selective pruning
+
+	private int aspiration = DEFAULT_ASPIRATION; // half width of the root window
+	private int[][] buffers = new int[0][]; // move list for each ply
+	private long nodes = 0;
+	private int rootScore = 0;
+
+	private static final int CHECK_INTERVAL = 1023; // nodes between checks of the clock
+	private long deadline = 0; // System.currentTimeMillis() to stop at, 0 for no limit
+	private long maxNodes = 0; // nodes to stop at, 0 for no limit
+	private AtomicLong sharedNodes = null; // nodes of this search and its forks, once it has forked under a node budget
+	private long reported = 0; // of our nodes, those already added to sharedNodes
+	private boolean aborted = false;
+	private volatile boolean stopped = false; // set by stop(), from another thread
+	private boolean exactDepth = false; // only take table entries searched to exactly the depth needed
+
+	public NegamaxSearch(Evaluator evaluator, MoveOrderer orderer, TranspositionTable tt)
+	{
+		setEvaluator(evaluator);
+		this.orderer = orderer;
+		this.tt = tt;
+	}
+
+	public void setEvaluator(Evaluator evaluator)
+	{
+		this.evaluator = evaluator;
+		incremental = (evaluator instanceof IncrementalEvaluator) ? (IncrementalEvaluator)evaluator : null;
+	}
+
+	public void setMoveOrderer(MoveOrderer orderer) { this.orderer = orderer; }
+	public void setTranspositionTable(TranspositionTable tt) { this.tt = tt; }
+	public void setAspirationWindow(int width) { aspiration = width; }
+	public void setHistory(HistoryTable history) { this.history = history; }
+
+	// prune interior nodes with Multi-ProbCut - null to search every node fully
+	public void setProbCut(ProbCut probCut) { this.probCut = probCut; }
+
+	// with exact depth on, a table entry from a deeper search is not used in place of a shallower
+	// one. results then no longer depend on what other searches sharing the table have stored,
+	// which keeps parallel searches reproducible
+	public void setExactDepth(boolean exactDepth) { this.exactDepth = exactDepth; }
+
+	public Evaluator getEvaluator() { return evaluator; }
+	public MoveOrderer getMoveOrderer() { return orderer; }
+	public TranspositionTable getTranspositionTable() { return tt; }
+	public HistoryTable getHistory() { return history; }
+	public ProbCut getProbCut() { return probCut; }
+
+	public long getNodes() { return nodes; }
+	public void resetNodes()
+	{
+		nodes = reported = 0;
+		sharedNodes = null;
+	}
+
+	// stop searching at the given time (System.currentTimeMillis()) or once the node count
+	// reaches maxNodes - 0 for no limit. also clears the aborted flag
+	public void setLimits(long deadline, long maxNodes)
+	{
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		sharedNodes = null;
+		reported = 0;
+		aborted = false;
+	}
+
+	public void clearLimits() { setLimits(0, 0); }
+
+	// make this search (running on another thread) give up at its next check of the clock
+	// permanent - a stopped search aborts everything it is asked to do afterwards
+	public void stop() { stopped = true; }
+
+	// true if the last search ran out of time or nodes before it finished
+	public boolean isAborted() { return aborted; }
+
+	// score of the move returned by the last searchRoot call
+	public int getRootScore() { return rootScore; }
+
+	// score of a finished game the side to move leads by 'discs'
+	public static int finalScore(int discs)
+	{
+		return (discs > 0) ? WIN_SCORE + discs : (discs < 0) ? -WIN_SCORE + discs : 0;
+	}
+
+	// true if 'score' is a finished game - won or lost, not an evaluation
+	public static boolean isFinal(int score) { return score > WIN_SCORE || score < -WIN_SCORE; }
+
+	// search all legal moves of the active player to 'depth' plies and return the best square,
+	// or -1 if there is no legal move. equal best moves are broken at random - a later move
+	// replaces the current best with probability 'override'. 'guess' centres the aspiration
+	// window, or NO_GUESS to search the first move with a full window
+	public int searchRoot(Board b, int depth, Random r, double override, int guess)
+	{
+		ensureBuffers(depth);
+		int count = orderer.order(b, b.getMoveMask(), 0, buffers[0]);
+		return searchRoot(b, buffers[0], count, depth, r, override, guess);
+	}
+
+	// as above, but only the first 'count' squares of 'moves' are searched, in that order
+	public int searchRoot(Board b, int[] moves, int count, int depth, Random r, double override, int guess)
+	{
+		if(count == 0) return -1;
+
+		int best = moves[0];
+		int bestScore = searchMove(b, best, depth, guess);
+		if(aborted) return best;
+
+		for(int i = 1; i < count; i++)
+		{
+			int square = moves[i];
+			int score = searchMoveAbove(b, square, depth, bestScore);
+			if(aborted) return best;
+
+			if(score > bestScore || (score == bestScore && r.nextDouble() < override))
+			{
+				best = square;
+				bestScore = score;
+			}
+		}
+
+		rootScore = bestScore;
+		return best;
+	}
+
+	// exact score of the active player moving to 'square', with an aspiration window around 'guess'
+	public int searchMove(Board b, int square, int depth, int guess)
+	{
+		ensureBuffers(depth);
+		int alpha = ReversiAI.MIN_SCORE, beta = ReversiAI.MAX_SCORE;
+		if(guess != NO_GUESS && !isFinal(guess)) // a won or lost game is exact - no window around it
+		{
+			alpha = Math.max(guess - aspiration, ReversiAI.MIN_SCORE);
+			beta = Math.min(guess + aspiration, ReversiAI.MAX_SCORE);
+		}
+
+		if(incremental != null) incremental.reset(b);
+		long flipped = play(b, square);
+		int score = -search(b, depth - 1, -beta, -alpha, 1);
+
+		// outside the window - open up the side it failed on and search again
+		if(score <= alpha && alpha > ReversiAI.MIN_SCORE)
+			score = -search(b, depth - 1, -beta, ReversiAI.MAX_SCORE, 1);
+		else if(score >= beta && beta < ReversiAI.MAX_SCORE)
+			score = -search(b, depth - 1, ReversiAI.MIN_SCORE, -alpha, 1);
+
+		undo(b, square, flipped);
+		return score;
+	}
+
+	// score of moving to 'square' if it is at least 'bound' (exact), otherwise some score below 'bound'
+	// the null window sits just below the bound, so a move that ties is found as well as a better one
+	public int searchMoveAbove(Board b, int square, int depth, int bound)
+	{
+		ensureBuffers(depth);
+		if(incremental != null) incremental.reset(b);
+		long flipped = play(b, square);
+
+		int score = -search(b, depth - 1, -bound, -(bound - 1), 1);
+		if(score >= bound) score = -search(b, depth - 1, ReversiAI.MIN_SCORE, -(bound - 1), 1);
+
+		undo(b, square, flipped);
+		return score;
+	}
+
+	// score of the position to 'depth' plies with window (alpha, beta), for the side to move
+	public int score(Board b, int depth, int alpha, int beta)
+	{
+		ensureBuffers(depth);
+		if(incremental != null) incremental.reset(b);
+		return search(b, depth, alpha, beta, 0);
+	}
+
+	private int search(Board b, int depth, int alpha, int beta, int ply)
+	{
+		nodes++;
+		if(aborted) return 0;
+		if((nodes & CHECK_INTERVAL) == 0 && outOfBudget())
+		{
+			aborted = true;
+			return 0;
+		}
+		if(depth <= 0)
+		{
+			// a game that ends right at the horizon is still scored as finished, not evaluated
+			if(b.getMoveMask() == 0 && b.getMoveMask(false) == 0) return finalScore(b.getScore());
+			return (incremental != null) ? incremental.evaluateTracked(b) : evaluator.evaluate(b);
+		}
+
+		long key = b.getHash(), entry = (tt != null) ? tt.probe(key) : 0;
+		int hint = TranspositionTable.move(entry); // worth trying first, whatever depth it came from
+		if(exactDepth && TranspositionTable.depth(entry) != depth) entry = 0;
+		if(TranspositionTable.cuts(entry, depth, alpha, beta)) return TranspositionTable.score(entry);
+
+		// Multi-ProbCut - a shallow search confident enough about this node settles it
+		if(probCut != null && ply > 0 && depth >= ProbCut.MIN_DEPTH)
+		{
+			int stage = ProbCut.stage(b), shallow = ProbCut.shallowDepth(depth);
+			// the fits only hold for evaluations, so bounds on a won or lost game are left to the full search
+			if(beta < ReversiAI.MAX_SCORE && !isFinal(beta))
+			{
+				int bound = probCut.betaBound(stage, depth, beta);
+				if(search(b, shallow, bound - 1, bound, ply) >= bound) return aborted ? 0 : beta;
+			}
+			if(alpha > ReversiAI.MIN_SCORE && !isFinal(alpha))
+			{
+				int bound = probCut.alphaBound(stage, depth, alpha);
+				if(search(b, shallow, bound, bound + 1, ply) <= bound) return aborted ? 0 : alpha;
+			}
+			if(aborted) return 0;
+		}
+
+		long legal = b.getMoveMask();
+		if(legal == 0)
+		{
+			if(b.getMoveMask(false) == 0) return finalScore(b.getScore()); // neither side can move - game over
+
+			b.turn(); // pass
+			int score = -search(b, depth - 1, -beta, -alpha, ply + 1);
+			b.turn();
+			return score;
+		}
+
+		int[] moves = buffers[ply];
+		int count = orderer.order(b, legal, ply, moves);
+		if(history != null) history.sort(moves, count, ply, b.getActive(), hint);
+		int bestScore = ReversiAI.MIN_SCORE, best = -1, alpha0 = alpha;
+
+		for(int i = 0; i < count; i++)
+		{
+			int square = moves[i];
+			long flipped = play(b, square);
+
+			int score;
+			if(i == 0) score = -search(b, depth - 1, -beta, -alpha, ply + 1);
+			else
+			{
+				score = -search(b, depth - 1, -alpha - 1, -alpha, ply + 1);
+				if(score > alpha && score < beta) score = -search(b, depth - 1, -beta, -alpha, ply + 1);
+			}
+
+			undo(b, square, flipped);
+			if(aborted) return 0;
+
+			if(score > bestScore)
+			{
+				bestScore = score;
+				best = square;
+				if(score > alpha) alpha = score;
+				if(alpha >= beta)
+				{
+					if(history != null) history.cutoff(square, ply, b.getActive(), depth);
+					break;
+				}
+			}
+		}
+
+		if(tt != null) tt.store(key, depth, TranspositionTable.bound(bestScore, alpha0, beta), bestScore, best);
+		return bestScore;
+	}
+
+	// make the active player's move to 'square' and hand the turn over
+	private long play(Board b, int square)
+	{
+		long flipped = b.makeMove(square);
+		if(incremental != null) incremental.play(square, flipped, b.getActive());
+		b.turn();
+		return flipped;
+	}
+
+	private void undo(Board b, int square, long flipped)
+	{
+		b.turn();
+		if(incremental != null) incremental.undo(square, flipped, b.getActive());
+		b.unmakeMove(square, flipped);
+	}
+
+	// a new search with the same evaluation, move order, table and limits, for another thread
+	// the evaluator and move orderer are shared, so they must be safe to use from several threads
+	// - except an IncrementalEvaluator, which gets a copy of its own. the history table is copied.
+	// a node budget is shared too - this search and all its forks stop once they have searched
+	// maxNodes between them
+	public NegamaxSearch fork()
+	{
+		if(maxNodes > 0 && sharedNodes == null)
+		{
+			sharedNodes = new AtomicLong(nodes);
+			reported = nodes;
+		}
+
+		NegamaxSearch copy = new NegamaxSearch((incremental != null) ? incremental.copy() : evaluator, orderer, tt);
+		copy.history = (history != null) ? new HistoryTable(history) : null;
+		copy.probCut = probCut;
+		copy.aspiration = aspiration;
+		copy.exactDepth = exactDepth;
+		copy.deadline = deadline;
+		copy.maxNodes = maxNodes;
+		copy.sharedNodes = sharedNodes;
+		return copy;
+	}
+
+	private boolean outOfBudget()
+	{
+		return stopped || (maxNodes > 0 && budgetNodes() >= maxNodes) || (deadline > 0 && System.currentTimeMillis() >= deadline);
+	}
+
+	// nodes counted against the budget - ours, plus our forks' if we share it
+	private long budgetNodes()
+	{
+		if(sharedNodes == null) return nodes;
+		long total = sharedNodes.addAndGet(nodes - reported);
+		reported = nodes;
+		return total;
+	}
+
+	// one move list per ply - passes use a ply each, so a search never goes deeper than 'depth'
+	private void ensureBuffers(int depth)
+	{
+		if(history != null) history.ensure(depth);
+		if(buffers.length > depth) return;
+
+		int[][] grown = new int[depth + 1][];
+		System.arraycopy(buffers, 0, grown, 0, buffers.length);
+		for(int i = buffers.length; i < grown.length; i++) grown[i] = new int[64];
+		buffers = grown;
+	}
+}
@@ -0,0 +1,386 @@
+package othello.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import othello.model.Board;
+
+// EndgameSolver on several threads, for positions too big to solve quickly on one
+//
+// the top SPLIT_DEPTH plies of the tree are split points (young brothers wait): the first
+// move at a node is searched on its own, then the rest are forked on a ForkJoinPool, each
+// tested with a null window against the best score so far (shared through an atomic) and only
+// searched with the full window if it beats it. a move that cuts off calls off its brothers.
+// below the split points, and with fewer than SPLIT_EMPTIES empty squares, each thread runs
+// its own EndgameSolver. all of them share one table of solved positions. splitting only near
+// the root of big positions keeps the tasks few and long - deeper split points cost more in
+// tasks and shared bounds than they gain. with a parallelism of 1 there is no pool at all,
+// and everything is solved by one EndgameSolver on the calling thread
+//
+// scores are exact, so solve() and searchRoot() give the same answers as EndgameSolver
+// whatever the thread timing - and searchRoot() breaks ties in root order, so with the same
+// Random it picks the same move
+public class ParallelEndgameSolver
+{
+	public static final int DEFAULT_SIZE_MB = 16;
+
+	private static final int INF = EndgameSolver.INF;
+	private static final int SPLIT_EMPTIES = 16; // smaller positions are solved on one thread
+	private static final int SPLIT_DEPTH = 2; // plies from the root that may be split
+
+	private final int parallelism;
+	private final ForkJoinPool pool; // null with a parallelism of 1
+	private final EndgameSolver serial; // solves everything with a parallelism of 1, otherwise null
+	private final TranspositionTable tt;
+	private final ThreadLocal<EndgameSolver> solvers;
+	private final ThreadLocal<MoveLists> moveLists; // move list of each split node a thread is in
+
+	private final AtomicLong nodes = new AtomicLong();
+	private long deadline = 0; // System.currentTimeMillis() to stop at, 0 for no limit
+	private volatile boolean aborted = false;
+	private int rootScore = 0;
+	private int size;
+	private long full; // every square of the board
+
+	public ParallelEndgameSolver(int parallelism) { this(parallelism, DEFAULT_SIZE_MB); }
+
+	public ParallelEndgameSolver(int parallelism, int tableSizeMB)
+	{
+		this.parallelism = parallelism;
+		tt = new TranspositionTable(tableSizeMB);
+		pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+		serial = (parallelism > 1) ? null : new EndgameSolver(tt);
+		solvers = new ThreadLocal<EndgameSolver>() {
+			protected EndgameSolver initialValue() { return new EndgameSolver(tt); }
+		};
+		moveLists = new ThreadLocal<MoveLists>() {
+			protected MoveLists initialValue() { return new MoveLists(); }
+		};
+	}
+
+	public int getParallelism() { return parallelism; }
+
+	// let the pool's threads go - the solver can't be used afterwards
+	public void shutdown() { if(pool != null) pool.shutdown(); }
+	public TranspositionTable getTranspositionTable() { return tt; }
+
+	public long getNodes() { return nodes.get(); }
+	public void resetNodes() { nodes.set(0); }
+
+	// stop solving at the given time (System.currentTimeMillis()), 0 for no limit
+	// there is no node budget - the threads' node counts are only added up as they finish
+	public void setDeadline(long deadline) { this.deadline = deadline; }
+
+	// true if the last solve ran out of time - its result should be dropped
+	public boolean isAborted() { return aborted; }
+
+	// score of the move returned by the last searchRoot call
+	public int getRootScore() { return rootScore; }
+
+	// final disc difference with perfect play from both sides
+	public int solve(Board b) { return solve(b, -INF, INF); }
+
+	// 1 if the side to move wins with perfect play, 0 for a draw, -1 if it loses
+	public int solveWLD(Board b) { return Integer.signum(solve(b, -1, 1)); }
+
+	// fail-soft solve with window (alpha, beta) - the score is exact if it lies inside the window
+	public int solve(Board b, int alpha, int beta)
+	{
+		start(b);
+		if(serial != null)
+		{
+			prepareSerial();
+			int score = serial.solve(b, alpha, beta);
+			finishSerial();
+			return score;
+		}
+		return pool.invoke(new Split(b.getPieces(true), b.getPieces(false), alpha, beta, 0, null));
+	}
+
+	// the legal moves of the side to move, in the order the solver would try them
+	public int order(Board b, int[] out) { return solvers.get().order(b, out); }
+
+	// same contract as EndgameSolver.searchRoot - the first move is solved to get a score to
+	// beat, then the others in parallel
+	public int searchRoot(Board b, final int[] moves, final int count, final boolean wld, Random r, double override)
+	{
+		start(b);
+		if(count == 0) return -1;
+		if(serial != null)
+		{
+			prepareSerial();
+			int best = serial.searchRoot(b, moves, count, wld, r, override);
+			rootScore = serial.getRootScore();
+			finishSerial();
+			return best;
+		}
+
+		final long player = b.getPieces(true), opponent = b.getPieces(false);
+		final int[] scores = new int[count];
+		final boolean[] exact = new boolean[count];
+		final AtomicInteger bound = new AtomicInteger();
+
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			protected void compute()
+			{
+				scores[0] = wld ? Integer.signum(solveMove(player, opponent, moves[0], -1, 1))
+						: solveMove(player, opponent, moves[0], -INF, INF);
+				exact[0] = true;
+				bound.set(scores[0]);
+				if(aborted) return;
+
+				List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(count - 1);
+				for(int i = 1; i < count; i++)
+				{
+					final int index = i;
+					tasks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+
+						protected void compute()
+						{
+							int score, test = bound.get();
+							if(wld) score = Integer.signum(solveMove(player, opponent, moves[index], -1, 1));
+							else
+							{
+								// null window just below the best, so that ties are found as well as better moves
+								score = solveMove(player, opponent, moves[index], test - 1, test);
+								if(score >= test) score = solveMove(player, opponent, moves[index], test - 1, INF);
+							}
+
+							scores[index] = score;
+							exact[index] = wld || (score >= test);
+							for(int cur = bound.get(); score > cur && !bound.compareAndSet(cur, score); cur = bound.get());
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+		});
+		if(aborted) return moves[0];
+
+		// every move that ties the best score was solved exactly, so pick among those in root order
+		int bestScore = bound.get(), best = -1;
+		for(int i = 0; i < count; i++)
+		{
+			if(!exact[i] || scores[i] != bestScore) continue;
+			if(best == -1 || r.nextDouble() < override) best = moves[i];
+		}
+
+		rootScore = bestScore;
+		return best;
+	}
+
+	private void start(Board b)
+	{
+		aborted = false;
+		size = b.getSize();
+		full = (size == 8) ? -1L : (1L << (size * size)) - 1;
+	}
+
+	private void prepareSerial()
+	{
+		serial.setLimits(deadline, 0);
+		serial.resetNodes();
+	}
+
+	private void finishSerial()
+	{
+		nodes.addAndGet(serial.getNodes());
+		aborted = serial.isAborted();
+	}
+
+	// score for 'player' of moving to 'square' - must be called from a pool thread
+	private int solveMove(long player, long opponent, int square, int alpha, int beta)
+	{
+		long flipped = Board.flips(player, opponent, square, size);
+		return -new Split(opponent & ~flipped, player | flipped | (1L << square), -beta, -alpha, 1, null).compute();
+	}
+
+	// move lists for the split nodes a thread is inside, innermost last. a thread that waits on
+	// forked brothers may run other tasks meanwhile, but those finish before it carries on, so
+	// the lists are taken and given back in stack order
+	private static class MoveLists
+	{
+		private int[][] lists = new int[0][];
+		private int used = 0;
+
+		int[] take()
+		{
+			if(used == lists.length)
+			{
+				int[][] grown = new int[used + 4][];
+				System.arraycopy(lists, 0, grown, 0, used);
+				for(int i = used; i < grown.length; i++) grown[i] = new int[64];
+				lists = grown;
+			}
+			return lists[used++];
+		}
+
+		void giveBack() { used--; }
+	}
+
+	// the brothers forked at one split point - 'alpha' is the best score found there so far
+	private static class SplitPoint
+	{
+		final AtomicInteger alpha;
+		final int beta;
+		final List<Split> brothers = new ArrayList<Split>();
+
+		SplitPoint(int alpha, int beta)
+		{
+			this.alpha = new AtomicInteger(alpha);
+			this.beta = beta;
+		}
+
+		// a brother failed high - the rest are wasted work
+		void cut() { for(Split s : brothers) s.cancel(); }
+	}
+
+	// a subtree searched as one task. it searches its first moves itself, and forks the others
+	// (registering them as children, so that calling it off calls them off too)
+	private class Split extends RecursiveTask<Integer>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long player, opponent;
+		private final int alpha, beta, ply;
+		private final SplitPoint point; // null unless forked as a younger brother
+
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+		private final List<Split> children = new ArrayList<Split>();
+		private int result;
+		private boolean valid = false; // result is usable - not cancelled or out of time
+
+		Split(long player, long opponent, int alpha, int beta, int ply, SplitPoint point)
+		{
+			this.player = player;
+			this.opponent = opponent;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.ply = ply;
+			this.point = point;
+		}
+
+		synchronized void cancel()
+		{
+			cancelled.set(true);
+			for(Split s : children) s.cancel();
+		}
+
+		private synchronized void adopt(Split child)
+		{
+			if(cancelled.get()) child.cancelled.set(true);
+			children.add(child);
+		}
+
+		protected Integer compute()
+		{
+			if(point == null) return search(player, opponent, alpha, beta, false, ply);
+
+			// a younger brother - null window against the best score at the split point, and
+			// the full window (here -beta to -alpha at the split point) only if it beats it
+			int test = -point.alpha.get();
+			int score = search(player, opponent, test - 1, test, false, ply);
+			if(score < test && score > alpha) score = search(player, opponent, alpha, test, false, ply);
+
+			if(!cancelled.get() && !aborted)
+			{
+				result = score;
+				valid = true;
+				for(int cur = point.alpha.get(); -score > cur && !point.alpha.compareAndSet(cur, -score); cur = point.alpha.get());
+				if(-score >= point.beta) point.cut();
+			}
+			return score;
+		}
+
+		private int search(long player, long opponent, int alpha, int beta, boolean passed, int ply)
+		{
+			if(cancelled.get() || aborted) return 0;
+
+			long empty = full & ~(player | opponent);
+			int empties = Long.bitCount(empty);
+			if(empties < SPLIT_EMPTIES || ply >= SPLIT_DEPTH) return solveSerial(player, opponent, alpha, beta, passed);
+
+			nodes.incrementAndGet();
+			long legal = Board.moves(player, opponent, size);
+			if(legal == 0)
+			{
+				if(passed) return Long.bitCount(player) - Long.bitCount(opponent);
+				return -search(opponent, player, -beta, -alpha, true, ply);
+			}
+
+			long key = EndgameSolver.key(player, opponent), entry = tt.probe(key);
+			if(TranspositionTable.cuts(entry, empties, alpha, beta)) return TranspositionTable.score(entry);
+
+			MoveLists lists = moveLists.get();
+			try {
+				return split(player, opponent, alpha, beta, ply, empties, key, entry, lists.take());
+			} finally {
+				lists.giveBack();
+			}
+		}
+
+		// the split node itself, with a move list of its own
+		private int split(long player, long opponent, int alpha, int beta, int ply, int empties, long key, long entry, int[] moves)
+		{
+			int count = solvers.get().order(player, opponent, size, TranspositionTable.move(entry), moves);
+			int alpha0 = alpha;
+
+			// eldest brother on this thread
+			int best = moves[0];
+			long flipped = Board.flips(player, opponent, best, size);
+			int bestScore = -search(opponent & ~flipped, player | flipped | (1L << best), -beta, -alpha, false, ply + 1);
+			if(cancelled.get() || aborted) return 0;
+
+			if(bestScore < beta && count > 1)
+			{
+				SplitPoint point = new SplitPoint(Math.max(alpha, bestScore), beta);
+				for(int i = 1; i < count; i++)
+				{
+					flipped = Board.flips(player, opponent, moves[i], size);
+					Split s = new Split(opponent & ~flipped, player | flipped | (1L << moves[i]), -beta, -alpha, ply + 1, point);
+					point.brothers.add(s);
+					adopt(s);
+				}
+				invokeAll(point.brothers);
+				if(cancelled.get() || aborted) return 0;
+
+				for(int i = 1; i < count; i++)
+				{
+					Split s = point.brothers.get(i - 1);
+					if(s.valid && -s.result > bestScore)
+					{
+						bestScore = -s.result;
+						best = moves[i];
+					}
+				}
+			}
+
+			tt.store(key, empties, TranspositionTable.bound(bestScore, alpha0, beta), bestScore, best);
+			return bestScore;
+		}
+
+		private int solveSerial(long player, long opponent, int alpha, int beta, boolean passed)
+		{
+			EndgameSolver solver = solvers.get();
+			solver.setCancel(cancelled);
+			solver.setLimits(deadline, 0);
+			solver.resetNodes();
+
+			int score = solver.solve(player, opponent, size, alpha, beta, passed);
+			nodes.addAndGet(solver.getNodes());
+			if(solver.isAborted() && !cancelled.get()) aborted = true; // out of time
+			solver.setCancel(null);
+			return score;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package othello.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import othello.model.Board;
+
+// root splitting for NegamaxSearch (young brothers wait at the root)
+//
+// the first root move is searched on the calling thread to get a score to beat, then the
+// remaining moves are searched in parallel on a ForkJoinPool. each one is tested against the
+// best score found so far by any thread (shared through an atomic), and only searched exactly
+// if it is at least as good. every task gets its own board and NegamaxSearch, and they all
+// share the main search's transposition table
+//
+// in deterministic mode the searches only use table entries of exactly the right depth, so
+// scores don't depend on thread timing, and ties are broken in root order once all the
+// results are in. without ProbCut, the same position, thread count and Random then give the
+// same move every time. that move can still differ from a serial search's, which draws on
+// the Random for ties in a different order
+public class ParallelRootSearch
+{
+	private final NegamaxSearch main;
+	private final ForkJoinPool pool;
+	private final boolean deterministic;
+
+	private final AtomicLong helperNodes = new AtomicLong(); // nodes searched by the pool threads
+	private volatile boolean aborted = false;
+	private int rootScore = 0;
+
+	public ParallelRootSearch(NegamaxSearch main, int parallelism, boolean deterministic)
+	{
+		this.main = main;
+		this.deterministic = deterministic;
+		pool = new ForkJoinPool(parallelism);
+		main.setExactDepth(deterministic);
+	}
+
+	public int getParallelism() { return pool.getParallelism(); }
+
+	// let the pool's threads go - the search can't be used afterwards
+	public void shutdown() { pool.shutdown(); }
+
+	public long getNodes() { return main.getNodes() + helperNodes.get(); }
+	public void resetNodes() { main.resetNodes(); helperNodes.set(0); }
+	public boolean isAborted() { return aborted; }
+	public int getRootScore() { return rootScore; }
+
+	// same contract as NegamaxSearch.searchRoot
+	public int searchRoot(final Board b, final int[] moves, final int count, final int depth, Random r, double override, int guess)
+	{
+		aborted = false;
+		if(count == 0) return -1;
+
+		final int[] scores = new int[count];
+		scores[0] = main.searchMove(b, moves[0], depth, guess);
+		if(main.isAborted()) { aborted = true; return moves[0]; }
+
+		final AtomicInteger bound = new AtomicInteger(scores[0]);
+		final boolean[] exact = new boolean[count];
+		exact[0] = true;
+
+		final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(count - 1);
+		for(int i = 1; i < count; i++)
+		{
+			final int index = i;
+			final NegamaxSearch helper = main.fork();
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				protected void compute()
+				{
+					int test = bound.get();
+					int score = helper.searchMoveAbove(new Board(b), moves[index], depth, test);
+					helperNodes.addAndGet(helper.getNodes());
+					if(helper.isAborted()) { aborted = true; return; }
+
+					scores[index] = score;
+					exact[index] = (score >= test);
+					for(int cur = bound.get(); score > cur && !bound.compareAndSet(cur, score); cur = bound.get());
+				}
+			});
+		}
+
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			protected void compute() { invokeAll(tasks); }
+		});
+		if(aborted) return moves[0];
+
+		// every move that ties the best score was searched exactly, so pick among those in root order
+		int bestScore = bound.get(), best = -1;
+		for(int i = 0; i < count; i++)
+		{
+			if(!exact[i] || scores[i] != bestScore) continue;
+			if(best == -1 || r.nextDouble() < override) best = moves[i];
+		}
+
+		rootScore = bestScore;
+		return best;
+	}
+
+	public boolean isDeterministic() { return deterministic; }
+}
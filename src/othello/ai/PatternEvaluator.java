@@ -0,0 +1,318 @@
+package othello.ai;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import othello.model.Board;
+
+// pattern table evaluation
+//
+// the board is covered by lines of squares - each edge with its two X squares, the 3x3 and
+// 2x5 blocks in each corner, and the diagonals of 4 squares or more - in every orientation.
+// the contents of each line, read as a base 3 number (empty 0, black 1, white 2), index a
+// table of scores shared by all lines of that shape. the score is the sum over all lines
+//
+// the tables start out analytic - the square weights of MinimaxABHeuristicAI, shared out
+// between the lines covering each square, plus what the square weights can't see:
+// edge discs anchored to an owned corner are stable, an X square next to an empty corner is
+// a liability, and X and C squares stop being one once their own side holds the corner.
+// tuned tables can be saved and loaded
+//
+// the line indices are updated from each move's flip mask, so a leaf costs one table
+// lookup per line. scores are in units of 1 / SCALE of a square weight
+public class PatternEvaluator implements IncrementalEvaluator
+{
+	public static final int SCALE = 8;
+
+	private static final int STABLE = 4; // per edge disc anchored to a corner
+	private static final int X_PENALTY = 6; // X square taken, next to an empty corner
+
+	private static final int[][] WEIGHTS = {
+			{ 20,  -3,  5,  2 },
+			{ -3,  -7, -4,  1 },
+			{  11, -4,  2,  2 },
+			{  8,   1,  2, -3 } };
+
+	// line shapes, each with its own table
+	private static final int EDGE_X = 0, CORNER_3X3 = 1, CORNER_2X5 = 2, DIAGONAL = 3;
+
+	private final int size;
+	private final short[][] tables; // by shape (diagonals get one table per length)
+	private final int[] shape; // table of each line
+	private final int[][] lines; // squares of each line, lowest digit first
+
+	private final int[][] lineOf; // for each square, the lines through it
+	private final int[][] powerOf; // and the value of its digit in each of them
+
+	private final int[] indices; // current index of each line (the tracked state)
+
+	public PatternEvaluator(int size)
+	{
+		this.size = size;
+
+		List<int[]> lineList = new ArrayList<int[]>();
+		List<Integer> shapeList = new ArrayList<Integer>();
+		List<int[]> bases = new ArrayList<int[]>(); // base orientation of each table
+		List<Integer> kinds = new ArrayList<Integer>();
+
+		if(size >= 4)
+		{
+			int[] edge = new int[2 * (size + 2)];
+			for(int x = 0; x < size; x++) { edge[2 * x] = x; edge[2 * x + 1] = 0; }
+			edge[2 * size] = 1; edge[2 * size + 1] = 1;
+			edge[2 * size + 2] = size - 2; edge[2 * size + 3] = 1;
+			bases.add(edge); kinds.add(EDGE_X);
+
+			bases.add(block(3, 3)); kinds.add(CORNER_3X3);
+		}
+		if(size >= 5) { bases.add(block(5, 2)); kinds.add(CORNER_2X5); }
+		for(int k = size; k >= 4; k--)
+		{
+			int[] diagonal = new int[2 * k];
+			for(int i = 0; i < k; i++) { diagonal[2 * i] = i; diagonal[2 * i + 1] = size - k + i; }
+			bases.add(diagonal); kinds.add(DIAGONAL);
+		}
+
+		// every distinct orientation of each base shape
+		for(int t = 0; t < bases.size(); t++)
+		{
+			Set<Long> seen = new HashSet<Long>();
+			int[] base = bases.get(t);
+			for(int sym = 0; sym < 8; sym++)
+			{
+				int[] line = new int[base.length / 2];
+				long set = 0;
+				for(int i = 0; i < line.length; i++)
+				{
+					line[i] = transform(base[2 * i], base[2 * i + 1], sym);
+					set |= 1L << line[i];
+				}
+				if(seen.add(set))
+				{
+					lineList.add(line);
+					shapeList.add(t);
+				}
+			}
+		}
+
+		lines = lineList.toArray(new int[lineList.size()][]);
+		shape = new int[lines.length];
+		for(int i = 0; i < shape.length; i++) shape[i] = shapeList.get(i);
+
+		// lines through each square
+		int[] coverage = new int[size * size];
+		for(int[] line : lines) for(int square : line) coverage[square]++;
+		lineOf = new int[size * size][];
+		powerOf = new int[size * size][];
+		for(int square = 0; square < size * size; square++)
+		{
+			lineOf[square] = new int[coverage[square]];
+			powerOf[square] = new int[coverage[square]];
+		}
+		int[] filled = new int[size * size];
+		for(int l = 0; l < lines.length; l++)
+		{
+			for(int i = 0, power = 1; i < lines[l].length; i++, power *= 3)
+			{
+				int square = lines[l][i];
+				lineOf[square][filled[square]] = l;
+				powerOf[square][filled[square]++] = power;
+			}
+		}
+
+		tables = new short[bases.size()][];
+		for(int t = 0; t < tables.length; t++) tables[t] = initialTable(bases.get(t), kinds.get(t), coverage);
+		indices = new int[lines.length];
+	}
+
+	// same geometry and tables, separate state
+	private PatternEvaluator(PatternEvaluator p)
+	{
+		size = p.size;
+		tables = p.tables;
+		shape = p.shape;
+		lines = p.lines;
+		lineOf = p.lineOf;
+		powerOf = p.powerOf;
+		indices = new int[lines.length];
+	}
+
+	public int getSize() { return size; }
+
+	public int evaluate(Board b)
+	{
+		long black = pieces(b, Board.BLACK), white = pieces(b, Board.WHITE);
+		int score = 0;
+		for(int l = 0; l < lines.length; l++) score += tables[shape[l]][index(lines[l], black, white)];
+		return (b.getActive() == Board.BLACK) ? score : -score;
+	}
+
+	public void reset(Board b)
+	{
+		long black = pieces(b, Board.BLACK), white = pieces(b, Board.WHITE);
+		for(int l = 0; l < lines.length; l++) indices[l] = index(lines[l], black, white);
+	}
+
+	public void play(int square, long flipped, int color) { update(square, flipped, color, 1); }
+	public void undo(int square, long flipped, int color) { update(square, flipped, color, -1); }
+
+	public int evaluateTracked(Board b)
+	{
+		int score = 0;
+		for(int l = 0; l < indices.length; l++) score += tables[shape[l]][indices[l]];
+		return (b.getActive() == Board.BLACK) ? score : -score;
+	}
+
+	public IncrementalEvaluator copy() { return new PatternEvaluator(this); }
+
+	// the placed piece goes from empty (0) to 'color', flipped ones from the other colour to it
+	private void update(int square, long flipped, int color, int sign)
+	{
+		int digit = (color == Board.BLACK) ? 1 : 2, change = sign * (2 * digit - 3);
+
+		int[] ls = lineOf[square], ps = powerOf[square];
+		for(int i = 0; i < ls.length; i++) indices[ls[i]] += sign * digit * ps[i];
+
+		for(; flipped != 0; flipped &= flipped - 1)
+		{
+			int f = Long.numberOfTrailingZeros(flipped);
+			ls = lineOf[f];
+			ps = powerOf[f];
+			for(int i = 0; i < ls.length; i++) indices[ls[i]] += change * ps[i];
+		}
+	}
+
+	// write the tables - load() reads them back
+	public void save(OutputStream out) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(size);
+		data.writeInt(tables.length);
+		for(short[] table : tables)
+		{
+			data.writeInt(table.length);
+			for(short value : table) data.writeShort(value);
+		}
+		data.flush();
+	}
+
+	public static PatternEvaluator load(InputStream in) throws IOException
+	{
+		DataInputStream data = new DataInputStream(in);
+		PatternEvaluator p = new PatternEvaluator(data.readInt());
+		if(data.readInt() != p.tables.length) throw new IOException("Pattern tables don't match the board size");
+		for(short[] table : p.tables)
+		{
+			if(data.readInt() != table.length) throw new IOException("Pattern tables don't match the board size");
+			for(int i = 0; i < table.length; i++) table[i] = data.readShort();
+		}
+		return p;
+	}
+
+	// table for a shape, from its squares in the base orientation (x, y pairs)
+	private short[] initialTable(int[] base, int kind, int[] coverage)
+	{
+		int length = base.length / 2, entries = 1;
+		for(int i = 0; i < length; i++) entries *= 3;
+
+		int[] square = new int[length], sign = new int[length];
+		double[] share = new double[length]; // of each square's weight
+		for(int i = 0; i < length; i++)
+		{
+			square[i] = base[2 * i + 1] * size + base[2 * i];
+			share[i] = (double)weight(base[2 * i], base[2 * i + 1]) / coverage[square[i]];
+		}
+
+		short[] table = new short[entries];
+		for(int index = 0; index < entries; index++)
+		{
+			for(int i = 0, rest = index; i < length; i++, rest /= 3)
+			{
+				int digit = rest % 3;
+				sign[i] = (digit == 0) ? 0 : (digit == 1) ? 1 : -1;
+			}
+
+			double score = 0;
+			for(int i = 0; i < length; i++) score += sign[i] * share[i];
+
+			if(kind == EDGE_X) score += STABLE * stableEdge(sign);
+			else if(kind == CORNER_3X3)
+			{
+				// squares 0 corner, 1 and 3 C squares, 4 X square
+				if(sign[0] == 0) score -= X_PENALTY * sign[4];
+				else
+				{
+					for(int i : new int[] { 1, 3, 4 })
+						if(sign[i] == sign[0]) score -= sign[i] * weight(base[2 * i], base[2 * i + 1]);
+				}
+			}
+			table[index] = (short)Math.round(score * SCALE);
+		}
+		return table;
+	}
+
+	// black's stable discs less white's along an edge (the first 'size' signs) - runs of one
+	// colour from an owned corner, or every disc if the edge is full
+	private int stableEdge(int[] sign)
+	{
+		int n = size, empty = 0, stable = 0;
+		for(int i = 0; i < n; i++) if(sign[i] == 0) empty++;
+		if(empty == 0)
+		{
+			for(int i = 1; i < n - 1; i++) stable += sign[i];
+			return stable;
+		}
+
+		int left = 0;
+		if(sign[0] != 0) for(left = 1; left < n && sign[left] == sign[0]; left++) stable += sign[0];
+		if(sign[n - 1] != 0) for(int i = n - 2; i >= left && sign[i] == sign[n - 1]; i--) stable += sign[n - 1];
+		return stable;
+	}
+
+	// square weight, averaged with its mirror in the diagonal so every orientation agrees
+	private int weight(int x, int y)
+	{
+		return (cost(x, y) + cost(y, x)) / 2;
+	}
+
+	private int cost(int x, int y)
+	{
+		if(x > (size - 1) / 2) x = (size - 1) - x; // deal with symmetry
+		if(y > (size - 1) / 2) y = (size - 1) - y;
+		return WEIGHTS[Math.min(x, 3)][Math.min(y, 3)];
+	}
+
+	// square (x, y) under one of the eight symmetries of the board
+	private int transform(int x, int y, int sym)
+	{
+		if((sym & 1) != 0) x = size - 1 - x;
+		if((sym & 2) != 0) y = size - 1 - y;
+		if((sym & 4) != 0) { int t = x; x = y; y = t; }
+		return y * size + x;
+	}
+
+	private static int[] block(int width, int height)
+	{
+		int[] squares = new int[2 * width * height];
+		for(int y = 0, i = 0; y < height; y++)
+			for(int x = 0; x < width; x++, i += 2) { squares[i] = x; squares[i + 1] = y; }
+		return squares;
+	}
+
+	private static long pieces(Board b, int color) { return b.getPieces(b.getActive() == color); }
+
+	private static int index(int[] line, long black, long white)
+	{
+		int index = 0;
+		for(int i = line.length - 1; i >= 0; i--)
+			index = 3 * index + (int)((black >>> line[i]) & 1) + 2 * (int)((white >>> line[i]) & 1);
+		return index;
+	}
+}
@@ -1,11 +1,5 @@
 package othello.ai;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import othello.ai.heuristic.BestScore;
 import othello.ai.heuristic.EvalPosition;
 import othello.ai.heuristic.Heuristic;
@@ -18,31 +12,40 @@ public class PluggableHeuristicAI extends ReversiAI {
 	public static final int BEST_SCORE = 1;
 	public static final int EVAL_POSITION = 2;
 	
-	private Map<Heuristic, Double> heuristics;
-
-	{
-		heuristics = new HashMap<Heuristic, Double>();
-	}
+	private static final int MAX_HEURISTICS = 3;
+	
+	// heuristics and their weights, in parallel arrays
+	private Heuristic[] heuristics = new Heuristic[MAX_HEURISTICS];
+	private double[] weights = new double[MAX_HEURISTICS];
+	private int heuristicCount = 0;
+	
+	// one entry per legal move, reused from move to move so that scoring allocates nothing
+	private int[] moves = new int[64];
+	private long[] players = new long[64], opponents = new long[64];
+	private double[] scores = new double[64], overall = new double[64];
 	
 	public PluggableHeuristicAI() {
-		heuristics.put( new BestScore(), 0.25 );
-		heuristics.put( new EvalPosition(BoardGUI.ROWS), 1.0 );
-		heuristics.put( new Mobility(BoardGUI.ROWS), 0.25);
+		add( new BestScore(), 0.25 );
+		add( new EvalPosition(BoardGUI.ROWS), 1.0 );
+		add( new Mobility(BoardGUI.ROWS), 0.25);
 	}
 	
 	public PluggableHeuristicAI(int method) {
 		
 		if((method & BEST_SCORE) == 1) {
-			heuristics.put( new BestScore(), 0.5 );
+			add( new BestScore(), 0.5 );
 		}
 		
 		if((method & EVAL_POSITION) == 2) {
-			heuristics.put( new EvalPosition(BoardGUI.ROWS), 1.0 );				
+			add( new EvalPosition(BoardGUI.ROWS), 1.0 );				
 		}
 		
 	}
 	
-	
+	private void add(Heuristic h, double weight) {
+		heuristics[heuristicCount] = h;
+		weights[heuristicCount++] = weight;
+	}
 	
 	int tieCount = 0;
 	
@@ -55,29 +58,21 @@ public class PluggableHeuristicAI extends ReversiAI {
 		startTimer();
 		setMove(-1, -1);
 
-		Board b = new Board(prev);
-
-		Map<Board, Point> moves = new HashMap<Board, Point>();
-		List<Board> boards = new ArrayList<Board>();
-		
-		for (int j = 0; j < size; j++) {
-			for (int i = 0; i < size; i++) {
-				if (b.move(i, j)) {
-					moves.put(b, new Point(i,j));
-					boards.add(b);
-				}
-				
-				b = new Board(prev);
-			}
+		// every legal move, as the position it leaves (still from the mover's side)
+		long player = prev.getPieces(true), opponent = prev.getPieces(false);
+		int count = 0;
+		for (long legal = prev.getMoveMask(); legal != 0; legal &= legal - 1, count++) {
+			int square = Long.numberOfTrailingZeros(legal);
+			long flipped = Board.flips(player, opponent, square, size);
+			moves[count] = square;
+			players[count] = player | flipped | (1L << square);
+			opponents[count] = opponent & ~flipped;
+			overall[count] = 0;
 		}
 		
-		Map<Board, Double> overall = new HashMap<Board, Double>();
-		
-		Map<Board, Double> scores;
-		Double prevValue = null;
-		
-		for(Heuristic h : heuristics.keySet()) {
-			scores = h.getUtility(boards);
+		for(int k = 0; k < heuristicCount; k++) {
+			Heuristic h = heuristics[k];
+			h.score(players, opponents, count, scores);
 			
 			// 1 - (-1) = 2
 			// 1 / 2 = 0.5
@@ -93,44 +88,38 @@ public class PluggableHeuristicAI extends ReversiAI {
 			
 			double divisor = h.getMax() - h.getMin();
 			double offset = h.getMax() - divisor;
-			double weight = heuristics.get(h);
+			double weight = weights[k];
 			
-			for(Board key : boards) {
-				double value = (divisor != 0) ? scores.get(key) / divisor:
-								scores.get(key);
+			for(int i = 0; i < count; i++) {
+				double value = (divisor != 0) ? scores[i] / divisor:
+								scores[i];
 				value += offset;
 				value = Math.abs(value) * weight;
 				
-//				System.out.println(value);
-				
-				if((prevValue = overall.get(key)) == null) {
-					overall.put(key, value);
-				} else {
-					overall.put(key, prevValue + value);
-				}
+				overall[i] += value;
 			}
 		}
 		
-		Board bestBoard = null;
+		int best = -1;
 		double bestScore = -1;
-		int count = 0;
-		for(Board key : boards) {
-			if(overall.get(key) > bestScore) {
-				bestBoard = key;
-				bestScore = overall.get(key);
-				count = 0;
-			} else if(overall.get(key) == bestScore) {
-				count++;
+		int ties = 0;
+		for(int i = 0; i < count; i++) {
+			if(overall[i] > bestScore) {
+				best = moves[i];
+				bestScore = overall[i];
+				ties = 0;
+			} else if(overall[i] == bestScore) {
+				ties++;
 			}
 		}
 		
-		if(count > 1){
+		if(ties > 1){
 			tieCount++;
 		}
 		
-		setMove(moves.get(bestBoard));
+		Board next = playMove(prev, best);
 
 		stopTimer();
-		return bestBoard;
+		return next;
 	}
 }
@@ -0,0 +1,195 @@
+package othello.ai;
+
+import java.util.Random;
+
+import othello.model.Board;
+
+// Multi-ProbCut (Buro) for NegamaxSearch
+//
+// a search to depth d is predicted from a search to depth d / 2 by a linear fit,
+// deep ~ slope * shallow + intercept, with normally distributed error of deviation sigma.
+// before searching a node deeply, a cheap null window search checks whether the shallow score
+// makes the deep one at least beta (or at most alpha) with 'threshold' deviations to spare,
+// and if so the node is cut there and then
+//
+// the fits depend on the evaluator and on how far the game has got, so they are kept per
+// stage (by number of discs on the board) and per depth, and calibrate() fits them from
+// self-play. depths deeper than the table use its deepest row
+// the parameters (threshold included) never change once made, so one ProbCut can be shared
+// by several searches
+public class ProbCut
+{
+	public static final double DEFAULT_THRESHOLD = 1.5;
+	public static final int MIN_DEPTH = 3; // shallowest search that is worth cutting
+	public static final int STAGES = 6;
+
+	private final double[][] slope, intercept, sigma; // [stage][depth], rows below MIN_DEPTH unused
+	private final double threshold;
+
+	public ProbCut(double[][] slope, double[][] intercept, double[][] sigma)
+	{
+		this(slope, intercept, sigma, DEFAULT_THRESHOLD);
+	}
+
+	private ProbCut(double[][] slope, double[][] intercept, double[][] sigma, double threshold)
+	{
+		this.slope = slope;
+		this.intercept = intercept;
+		this.sigma = sigma;
+		this.threshold = threshold;
+	}
+
+	// fits for Board.getScore() as the evaluator (AlphaBetaAI.DISC_COUNT) on 8 x 8, from calibrate()
+	public static ProbCut discCount()
+	{
+		return new ProbCut(DISC_SLOPE, DISC_INTERCEPT, DISC_SIGMA);
+	}
+
+	// the same fits, allowing for 'threshold' deviations of error in each cut - higher is safer
+	// but cuts less. a copy, so that engines sharing the fits keep their own thresholds
+	public ProbCut withThreshold(double threshold)
+	{
+		return new ProbCut(slope, intercept, sigma, threshold);
+	}
+
+	public double getThreshold() { return threshold; }
+
+	public int getMaxDepth() { return sigma[0].length - 1; }
+
+	// depth of the search used to predict one of 'depth' plies
+	public static int shallowDepth(int depth) { return depth / 2; }
+
+	public static int stage(Board b)
+	{
+		int squares = b.getSize() * b.getSize();
+		return Math.min((squares - b.getMoves()) * STAGES / squares, STAGES - 1);
+	}
+
+	// a shallow score at least this high predicts a deep one of at least 'beta'
+	public int betaBound(int stage, int depth, int beta)
+	{
+		int d = Math.min(depth, getMaxDepth());
+		return (int)Math.ceil((beta + threshold * sigma[stage][d] - intercept[stage][d]) / slope[stage][d]);
+	}
+
+	// a shallow score at most this low predicts a deep one of at most 'alpha'
+	public int alphaBound(int stage, int depth, int alpha)
+	{
+		int d = Math.min(depth, getMaxDepth());
+		return (int)Math.floor((alpha - threshold * sigma[stage][d] - intercept[stage][d]) / slope[stage][d]);
+	}
+
+	// fit the parameters for 'evaluator' on a size x size board, up to 'maxDepth' plies, from
+	// the positions of 'games' games of random play
+	public static ProbCut calibrate(Evaluator evaluator, MoveOrderer orderer, int size, int games, int maxDepth, Random r)
+	{
+		// exact depth, so that table entries from deeper searches don't stand in for shallow ones
+		NegamaxSearch search = new NegamaxSearch(evaluator, orderer, new TranspositionTable());
+		search.setExactDepth(true);
+
+		// sums for least squares, per stage and depth - n, x, y, xx, xy, yy
+		double[][][] sums = new double[STAGES][maxDepth + 1][6];
+
+		for(int g = 0; g < games; g++)
+		{
+			Board b = new Board(size);
+			while(!b.gameOver())
+			{
+				long legal = b.getMoveMask();
+				if(legal == 0)
+				{
+					b.turn();
+					continue;
+				}
+
+				int stage = stage(b);
+				for(int depth = MIN_DEPTH; depth <= maxDepth; depth++)
+				{
+					double x = search.score(b, shallowDepth(depth), ReversiAI.MIN_SCORE, ReversiAI.MAX_SCORE);
+					double y = search.score(b, depth, ReversiAI.MIN_SCORE, ReversiAI.MAX_SCORE);
+					if(NegamaxSearch.isFinal((int)x) || NegamaxSearch.isFinal((int)y)) continue; // game over, not an evaluation
+					double[] s = sums[stage][depth];
+					s[0]++; s[1] += x; s[2] += y; s[3] += x * x; s[4] += x * y; s[5] += y * y;
+				}
+
+				for(int k = r.nextInt(Long.bitCount(legal)); k > 0; k--) legal &= legal - 1;
+				b.move(Long.numberOfTrailingZeros(legal));
+				b.turn();
+			}
+		}
+
+		double[][] slope = new double[STAGES][maxDepth + 1];
+		double[][] intercept = new double[STAGES][maxDepth + 1];
+		double[][] sigma = new double[STAGES][maxDepth + 1];
+		for(int stage = 0; stage < STAGES; stage++)
+		{
+			for(int depth = MIN_DEPTH; depth <= maxDepth; depth++)
+			{
+				double[] s = sums[stage][depth];
+				double n = s[0], vx = s[3] - s[1] * s[1] / n, cxy = s[4] - s[1] * s[2] / n;
+				double a = (n > 2 && vx > 0) ? cxy / vx : 1, c = (n > 0) ? (s[2] - a * s[1]) / n : 0;
+
+				// residual deviation - an unfitted cell gets a huge sigma, so it never cuts
+				double sse = s[5] - 2 * a * s[4] - 2 * c * s[2] + a * a * s[3] + 2 * a * c * s[1] + c * c * n;
+				slope[stage][depth] = a;
+				intercept[stage][depth] = c;
+				sigma[stage][depth] = (n > 2) ? Math.sqrt(Math.max(sse, 0) / (n - 2)) : ReversiAI.MAX_SCORE;
+			}
+		}
+		return new ProbCut(slope, intercept, sigma);
+	}
+
+	// print the parameters as Java array initialisers
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		String[] names = { "SLOPE", "INTERCEPT", "SIGMA" };
+		double[][][] tables = { slope, intercept, sigma };
+		for(int t = 0; t < 3; t++)
+		{
+			sb.append(names[t]).append(" = {\n");
+			for(double[] row : tables[t])
+			{
+				sb.append("\t{ ");
+				for(int d = 0; d < row.length; d++) sb.append(String.format("%.3f", row[d])).append(d + 1 < row.length ? ", " : " },\n");
+			}
+			sb.append("};\n");
+		}
+		return sb.toString();
+	}
+
+	// recalibrate the disc count tables - java othello.ai.ProbCut [games] [max depth]
+	public static void main(String[] args)
+	{
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int maxDepth = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+
+		System.out.print(calibrate(AlphaBetaAI.DISC_COUNT, AlphaBetaAI.SQUARE_ORDER, 8, games, maxDepth, new Random(ReversiAI.SEED)));
+	}
+
+	// from "java othello.ai.ProbCut 60 10" - rows are stages, columns depths 0 to 10
+	private static final double[][] DISC_SLOPE = {
+		{ 0.000, 0.000, 0.000, 0.651, 0.665, 0.550, 0.760, 0.764, 0.721, 0.702, 0.544 },
+		{ 0.000, 0.000, 0.000, 0.770, 0.781, 0.683, 0.729, 0.676, 0.732, 0.602, 0.659 },
+		{ 0.000, 0.000, 0.000, 0.772, 0.794, 0.676, 0.752, 0.679, 0.699, 0.642, 0.731 },
+		{ 0.000, 0.000, 0.000, 0.860, 0.878, 0.793, 0.813, 0.779, 0.842, 0.815, 0.924 },
+		{ 0.000, 0.000, 0.000, 0.871, 0.891, 0.823, 0.840, 0.790, 0.872, 0.814, 0.920 },
+		{ 0.000, 0.000, 0.000, 0.864, 0.932, 0.845, 0.953, 0.963, 1.016, 0.980, 1.060 }
+	};
+	private static final double[][] DISC_INTERCEPT = {
+		{ 0.000, 0.000, 0.000, 1.443, -1.062, 4.511, -5.266, 1.462, -1.239, 5.475, -4.640 },
+		{ 0.000, 0.000, 0.000, 1.126, -0.747, 6.357, -6.225, 1.665, -1.089, 6.454, -6.193 },
+		{ 0.000, 0.000, 0.000, 1.293, -0.944, 7.624, -7.774, 1.838, -1.136, 8.000, -7.558 },
+		{ 0.000, 0.000, 0.000, 0.765, -0.672, 9.229, -9.053, 1.556, -0.395, 9.872, -9.379 },
+		{ 0.000, 0.000, 0.000, 0.639, -0.270, 10.640, -9.347, 2.049, 0.771, 11.329, -8.420 },
+		{ 0.000, 0.000, 0.000, 0.116, 1.881, 8.035, -4.793, -0.384, 3.030, 5.406, -2.512 }
+	};
+	private static final double[][] DISC_SIGMA = {
+		{ 0.000, 0.000, 0.000, 0.923, 1.059, 1.190, 1.113, 1.132, 1.219, 1.248, 1.016 },
+		{ 0.000, 0.000, 0.000, 1.601, 1.380, 1.620, 1.615, 1.556, 1.551, 1.763, 1.814 },
+		{ 0.000, 0.000, 0.000, 2.086, 1.828, 2.171, 2.054, 2.303, 2.566, 3.022, 3.205 },
+		{ 0.000, 0.000, 0.000, 2.864, 2.553, 3.353, 3.408, 3.954, 4.172, 5.003, 5.167 },
+		{ 0.000, 0.000, 0.000, 3.895, 3.615, 4.835, 5.014, 6.393, 6.876, 8.619, 9.157 },
+		{ 0.000, 0.000, 0.000, 6.753, 6.736, 9.472, 9.037, 10.284, 9.796, 11.613, 9.660 }
+	};
+}
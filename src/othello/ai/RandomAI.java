@@ -15,7 +15,7 @@ public class RandomAI extends ReversiAI
   
   public RandomAI(boolean deterministic)
   {
-  	if(deterministic) r = new Random(SEED);
+  	if(deterministic) r = new Random(seed = SEED);
   }
   
   public Board nextMove(Board prev, int lastx, int lasty)
@@ -20,9 +20,17 @@ public abstract class ReversiAI
 		String MINIMAX_AB_ORD = "Minimax AB w/ Branch ordering";
 		String MINIMAX_AB_MCUT = "Minimax AB w/ Prob. multicut pruning";
 		String MINIMAX_AB_HEU = "Minimax AB w/ Heuristic";
+		String MINIMAX_AB_PAT = "Minimax AB w/ Patterns";
+		String MINIMAX_AB_PLUG = "Minimax AB w/ Pluggable heuristics";
 	}
 	
 	public static ReversiAI getAIByName(String aiName) {
+		return getAIByName(aiName, TranspositionTable.DEFAULT_SIZE_MB);
+	}
+	
+	// as above, with transposition tables of 'tableSizeMB' for the engines that have them
+	// (0 for none) - smaller tables let many engines play at once
+	public static ReversiAI getAIByName(String aiName, int tableSizeMB) {
 		if (ReversiAI.Types.GREEDY.equals(aiName)) {
 			return new GreedyAI();
 		} else if (ReversiAI.Types.RANDOM.equals(aiName)) {
@@ -34,13 +42,17 @@ public abstract class ReversiAI
 		} else if (ReversiAI.Types.MINIMAX.equals(aiName)) {
 			return new MinimaxAI();
 		} else if (ReversiAI.Types.MINIMAX_AB.equals(aiName)) {
-			return new MinimaxABAI();
+			return new MinimaxABAI(DEPTH, false, tableSizeMB);
 		} else if (ReversiAI.Types.MINIMAX_AB_ORD.equals(aiName)) {
-			return new MinimaxABAIOrdered();
+			return new MinimaxABAIOrdered(DEPTH, false, tableSizeMB);
 		} else if (ReversiAI.Types.MINIMAX_AB_MCUT.equals(aiName)) {
-			return new MinimaxABAIMulticut();
+			return new MinimaxABAIMulticut(DEPTH, false, tableSizeMB);
 		} else if (ReversiAI.Types.MINIMAX_AB_HEU.equals(aiName)) {
-			return new MinimaxABHeuristicAI();
+			return new MinimaxABHeuristicAI(DEPTH, false, tableSizeMB);
+		} else if (ReversiAI.Types.MINIMAX_AB_PAT.equals(aiName)) {
+			return new MinimaxABPatternAI(DEPTH, false, tableSizeMB);
+		} else if (ReversiAI.Types.MINIMAX_AB_PLUG.equals(aiName)) {
+			return new MinimaxABPluggableAI(DEPTH, false, tableSizeMB);
 		} else {
 			throw new IllegalArgumentException("Unknown AI");
 		}
@@ -57,13 +69,39 @@ public abstract class ReversiAI
 	
 	protected int size;
 	protected long movecount = 0;
+	protected long pondernodes = 0; // searched on the opponent's time - not in movecount
+	protected long seed = -1; // seed of the engine's Random, -1 if it isn't reproducible
 	
 	private int bestMove;
 	
 	private double elapsed = 0.0;
+	protected double ponderElapsed = 0.0; // seconds spent pondering - not in elapsed
 	private long start = BAD_TIME;
 	
+	protected long timeBudget = 0; // milliseconds per move, 0 for none
+	protected long nodeBudget = 0; // nodes per move, 0 for none
+	
 	public long getMoveCount() { return movecount; }
+	public long getSeed() { return seed; }
+	public int getDepth() { return 1; } // plies searched - 1 for the greedy engines
+	
+	// limit the time or nodes spent on each move - engines that search iteratively deepen
+	// until the budget runs out and play the deepest completed result, treating their
+	// depth as a cap. others ignore the budget. 0 removes the limit
+	public void setTimeBudget(long millis) { timeBudget = millis; }
+	public void setNodeBudget(long nodes) { nodeBudget = nodes; }
+	public long getTimeBudget() { return timeBudget; }
+	public long getNodeBudget() { return nodeBudget; }
+	
+	// think on the opponent's time - 'b' is the position with the opponent to move, and the
+	// engine may search the replies in the background until stopPondering() or its next
+	// nextMove(). engines that can't ponder ignore it
+	public void ponder(Board b) {}
+	public void stopPondering() {}
+	
+	// work done while pondering, kept apart from the engine's own moves
+	public long getPonderNodes() { return pondernodes; }
+	public double getPonderTime() { return ponderElapsed; }
 	
   public void setSize(int size) { this.size = size; }
   
@@ -79,12 +117,26 @@ public abstract class ReversiAI
   	else bestMove = x + (y * size);
   }
   
+  protected void setMove(int square) { bestMove = square; }
+  
   protected void setMove(Point p)
   {
   	if(p == null) bestMove = -1;
   	else bestMove = p.x + p.y * size;
   }
   
+  // record 'square' as the chosen move, and return a copy of the board with it played
+  // (null if there is no move)
+  protected Board playMove(Board prev, int square)
+  {
+  	setMove(square);
+  	if(square == -1) return null;
+  	
+  	Board b = new Board(prev);
+  	b.move(square);
+  	return b;
+  }
+  
   protected void startTimer() { start = System.currentTimeMillis(); }
   protected void stopTimer()
   {
@@ -0,0 +1,118 @@
+package othello.ai;
+
+// fixed size hash table of search results, keyed by Board.getHash()
+//
+// entries are packed into a long[] - two longs per entry, two entries per bucket
+//  - slot 0 is depth-preferred: only replaced by a search at least as deep, the same position,
+//    or an entry left over from an earlier search
+//  - slot 1 is always replaced
+//
+// access is lock-free, so one table can be shared by several searching threads. each entry
+// is stored as (key ^ data, data) and a probe only accepts it if the two halves xor back to
+// the key, so an entry torn by two threads writing at once reads as a miss rather than as
+// bad data
+//
+// scores are stored from the point of view of the side to move in the position
+public class TranspositionTable
+{
+	public static final int DEFAULT_SIZE_MB = 16;
+
+	// bound types
+	public static final int UPPER = 1; // score is at most the stored value (failed low)
+	public static final int LOWER = 2; // score is at least the stored value (failed high)
+	public static final int EXACT = 3;
+
+	private static final int BUCKET_LONGS = 4; // two entries of two longs
+
+	// data layout: score in bits 0-31, depth 32-39, bound 40-41, move + 1 (0 = none) 42-48, generation 49-56
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int GEN_SHIFT = 49;
+
+	private final long[] table;
+	private final int mask; // number of buckets - 1
+
+	private volatile int generation = 0; // bumped by each new search, so old entries can be replaced
+
+	public TranspositionTable() { this(DEFAULT_SIZE_MB); }
+
+	// table using (at most) sizeMB megabytes, rounded down to a power of two number of buckets
+	public TranspositionTable(int sizeMB)
+	{
+		if(sizeMB <= 0) throw new IllegalArgumentException("Table size must be positive");
+
+		long buckets = Long.highestOneBit(((long)sizeMB << 20) / (BUCKET_LONGS * 8));
+		buckets = Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS + 1L);
+		table = new long[(int)(buckets * BUCKET_LONGS)];
+		mask = (int)buckets - 1;
+	}
+
+	// start of a new search - entries from earlier searches lose their depth preference
+	public void newSearch() { generation = (generation + 1) & 0xFF; }
+
+	public void clear() { java.util.Arrays.fill(table, 0); }
+
+	// return the packed entry for the given key, or 0 if there is none
+	public long probe(long key)
+	{
+		int base = ((int)key & mask) * BUCKET_LONGS;
+
+		long data = table[base + 1];
+		if(data != 0 && (table[base] ^ data) == key) return data;
+
+		data = table[base + 3];
+		if(data != 0 && (table[base + 2] ^ data) == key) return data;
+
+		return 0;
+	}
+
+	// store a search result - move is a square, or -1 if there is no best move
+	public void store(long key, int depth, int bound, int score, int move)
+	{
+		int gen = generation;
+		long data = (score & 0xFFFFFFFFL) | ((long)depth << DEPTH_SHIFT) | ((long)bound << BOUND_SHIFT) |
+			((long)(move + 1) << MOVE_SHIFT) | ((long)gen << GEN_SHIFT);
+
+		int base = ((int)key & mask) * BUCKET_LONGS;
+		long old = table[base + 1];
+
+		if(depth >= depth(old) || generation(old) != gen || (table[base] ^ old) == key)
+		{
+			table[base + 1] = data;
+			table[base] = key ^ data;
+		}
+		else
+		{
+			table[base + 3] = data;
+			table[base + 2] = key ^ data;
+		}
+	}
+
+	// number of entries the table can hold
+	public int capacity() { return table.length / 2; }
+
+	// accessors for packed entries
+	public static int score(long entry) { return (int)entry; }
+	public static int depth(long entry) { return (int)(entry >>> DEPTH_SHIFT) & 0xFF; }
+	public static int bound(long entry) { return (int)(entry >>> BOUND_SHIFT) & 0x3; }
+	public static int move(long entry) { return ((int)(entry >>> MOVE_SHIFT) & 0x7F) - 1; }
+	private static int generation(long entry) { return (int)(entry >>> GEN_SHIFT) & 0xFF; }
+
+	// bound type for a score returned by a search with window (alpha, beta)
+	public static int bound(int score, int alpha, int beta)
+	{
+		if(score <= alpha) return UPPER;
+		else if(score >= beta) return LOWER;
+		else return EXACT;
+	}
+
+	// true if the entry, searched to at least 'depth', settles a search with window (alpha, beta)
+	public static boolean cuts(long entry, int depth, int alpha, int beta)
+	{
+		if(entry == 0 || depth(entry) < depth) return false;
+
+		int score = score(entry), bound = bound(entry);
+		return bound == EXACT || (bound == LOWER && score >= beta) || (bound == UPPER && score <= alpha);
+	}
+}
@@ -0,0 +1,48 @@
+package othello.ai.heuristic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import othello.model.Board;
+
+/*
+ * Base for heuristics written against the batch score() API - getUtility() is an adapter
+ * that unpacks the boards into bitboards and the scores back into a map.
+ */
+public abstract class AbstractHeuristic implements Heuristic {
+
+	@Override
+	public Map<Board, Double> getUtility(List<Board> boardStates) {
+		int count = boardStates.size();
+		long[] players = new long[count], opponents = new long[count];
+		double[] out = new double[count];
+		
+		for (int i = 0; i < count; i++) {
+			Board b = boardStates.get(i);
+			players[i] = b.getPieces(true);
+			opponents[i] = b.getPieces(false);
+		}
+		
+		score(players, opponents, count, out);
+		
+		Map<Board, Double> utilities = new HashMap<Board, Double>();
+		for (int i = 0; i < count; i++) {
+			utilities.put(boardStates.get(i), out[i]);
+		}
+		return utilities;
+	}
+	
+	/*
+	 * Replace the first count values with 1 for the highest (and any equal to it), 0 for the rest.
+	 */
+	protected static void markBest(double[] values, int count) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			if (values[i] > max) max = values[i];
+		}
+		for (int i = 0; i < count; i++) {
+			values[i] = (values[i] == max) ? 1.0 : 0.0;
+		}
+	}
+}
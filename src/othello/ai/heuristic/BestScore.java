@@ -1,42 +1,28 @@
 package othello.ai.heuristic;
 
-import othello.ai.*;
+import java.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+public class BestScore extends AbstractHeuristic implements LinearHeuristic {
 
-import othello.model.Board;
-
-public class BestScore implements Heuristic {
+	// disc difference
+	@Override
+	public int evaluate(long player, long opponent) {
+		return Long.bitCount(player) - Long.bitCount(opponent);
+	}
 
 	@Override
-	public Map<Board, Double> getUtility(List<Board> boardStates) {
-		Map<Board, Double> scores = new HashMap<Board, Double>();
-		
-		List<Board> bestBoards = new ArrayList<Board>();
-		
-		int maxScore = ReversiAI.MIN_SCORE;
-		for(Board b : boardStates) {
-			int score = b.getScore();
-			if (score > maxScore) {
-				maxScore = score;
-				bestBoards.clear();
-				bestBoards.add(b);
-			} else if (score == maxScore) {
-				bestBoards.add(b);
-			}
-			
-			// While we're looping set scores to 0.
-			scores.put(b, 0.0);
-		}
+	public int[] getSquareWeights(int size) {
+		int[] squareWeights = new int[size * size];
+		Arrays.fill(squareWeights, 1);
+		return squareWeights;
+	}
 
-		for(Board b : bestBoards) {
-			scores.put(b, 1.0);
+	@Override
+	public void score(long[] players, long[] opponents, int count, double[] out) {
+		for (int i = 0; i < count; i++) {
+			out[i] = evaluate(players[i], opponents[i]);
 		}
-		
-		return scores;
+		markBest(out, count);
 	}
 
 	@Override
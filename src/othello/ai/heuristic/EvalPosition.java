@@ -1,15 +1,9 @@
 package othello.ai.heuristic;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import othello.model.Board;
-
-public class EvalPosition implements Heuristic {
+public class EvalPosition extends AbstractHeuristic implements LinearHeuristic {
 
 	private int size;
+	private int[] squareCosts; // cost of each square, by bit index (y * size + x)
 
 	private int[][] weights = { 
 			{ 20,  -3,  5,  2 }, 
@@ -27,46 +21,39 @@ public class EvalPosition implements Heuristic {
 	
 	public EvalPosition(int size) {
 		this.size = size;
+		
+		squareCosts = new int[size * size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				squareCosts[y * size + x] = cost(x, y);
+			}
+		}
 	}
 
 	@Override
-	public Map<Board, Double> getUtility(List<Board> boardStates) {
-
-		Map<Board, Double> utilities = new HashMap<Board, Double>();
-		List<Board> bestBoards = new ArrayList<Board>();
-		
-		int maxScore = Integer.MIN_VALUE;
-		for (Board b : boardStates) {
-			int newscore = 0;
+	public void score(long[] players, long[] opponents, int count, double[] out) {
+		for (int i = 0; i < count; i++) {
+			out[i] = evaluate(players[i], opponents[i]);
+		}
+		markBest(out, count);
+	}
 
-			for (int y = 0; y < size; y++) {
-				for (int x = 0; x < size; x++) {
-					int state = b.getState(x, y);
-					if (state == b.getActive()) {
-						newscore += cost(x, y);
-					} else if (state != Board.EMPTY) {
-						newscore -= cost(x, y);						
-					}
-				}
-			}
-			
-			utilities.put(b, 0.0);
-			
-			if(newscore > maxScore) {
-				maxScore = newscore;
-				bestBoards.clear();
-				bestBoards.add(b);
-			} else if(newscore == maxScore) {
-				bestBoards.add(b);
-			}
-			
+	// weighted squares, the same as MinimaxABHeuristicAI
+	@Override
+	public int evaluate(long player, long opponent) {
+		int newscore = 0;
+		for (long p = player; p != 0; p &= p - 1) {
+			newscore += squareCosts[Long.numberOfTrailingZeros(p)];
 		}
-		
-		for(Board b : bestBoards) {
-			utilities.put(b, 1.0);
+		for (long o = opponent; o != 0; o &= o - 1) {
+			newscore -= squareCosts[Long.numberOfTrailingZeros(o)];
 		}
-		
-		return utilities;
+		return newscore;
+	}
+
+	@Override
+	public int[] getSquareWeights(int size) {
+		return (size == this.size) ? squareCosts.clone() : new EvalPosition(size).squareCosts;
 	}
 
 	@Override
@@ -14,6 +14,17 @@ public interface Heuristic {
 	 */
 	Map<Board, Double> getUtility(List<Board> boardStates);
 	
+	/**
+	 * Batch form of getUtility, on bitboards. Position i is players[i] (the side that
+	 * has just moved, whose utility this is) against opponents[i]; its utility goes in
+	 * out[i]. Allocates nothing, so it can be called for every node of a search.
+	 * @param players
+	 * @param opponents
+	 * @param count number of positions
+	 * @param out
+	 */
+	void score(long[] players, long[] opponents, int count, double[] out);
+	
 	double getMax();
 	double getMin();
 
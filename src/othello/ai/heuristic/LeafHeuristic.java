@@ -0,0 +1,17 @@
+package othello.ai.heuristic;
+
+/*
+ * A heuristic that can also score a single position on an absolute scale, so that it can be
+ * used as (part of) the leaf evaluation of a search - see othello.ai.FusedEvaluator.
+ */
+public interface LeafHeuristic extends Heuristic {
+	
+	/**
+	 * Raw, un-normalised value of the position for player - higher is better.
+	 * @param player pieces of the side the value is for
+	 * @param opponent pieces of the other side
+	 * @return
+	 */
+	int evaluate(long player, long opponent);
+
+}
@@ -0,0 +1,18 @@
+package othello.ai.heuristic;
+
+/*
+ * A leaf heuristic that is a sum of per-square values - player's squares count for them,
+ * opponent's against - so several of them can be merged into one table.
+ */
+public interface LinearHeuristic extends LeafHeuristic {
+	
+	/**
+	 * Value of owning each square of a size x size board, by bit index (y * size + x).
+	 * evaluate(player, opponent) must equal the sum over player's squares less the sum
+	 * over opponent's.
+	 * @param size
+	 * @return
+	 */
+	int[] getSquareWeights(int size);
+
+}
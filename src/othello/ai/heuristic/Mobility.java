@@ -1,11 +1,5 @@
 package othello.ai.heuristic;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import othello.model.Board;
 
 /*
@@ -16,68 +10,47 @@ import othello.model.Board;
  * your opponent's mobility had you made that move.
  * 
  * The algorithm adds the board that returned the lowest opponent mobilityScore to the list of bestBoards.
+ * 
+ * Potential mobility is the number of empty squares next to the other side's pieces - moves that
+ * may open up later. As a leaf evaluation, both kinds count, yours less your opponent's.
+ * 
+ * Everything is counted on bitboards (Board.moves, Board.neighbours and Long.bitCount), so no
+ * boards are copied.
  */
-public class Mobility implements Heuristic {
+public class Mobility extends AbstractHeuristic implements LeafHeuristic {
+
+	public static final int CURRENT_WEIGHT = 2; // a legal move now is worth two potential ones
 
 	private int size;
 
 	public Mobility(int size) {
 		this.size = size;
 	}
+	
+	// number of legal moves for player
+	public static int current(long player, long opponent, int size) {
+		return Long.bitCount(Board.moves(player, opponent, size));
+	}
+	
+	// number of empty squares next to opponent's pieces
+	public static int potential(long player, long opponent, int size) {
+		return Long.bitCount(Board.neighbours(opponent, size) & ~(player | opponent));
+	}
 
 	@Override
-	public Map<Board, Double> getUtility(List<Board> boardStates) {
-		Map<Board, Double> utilities = new HashMap<Board, Double>();
-		List<Board> bestBoards = new ArrayList<Board>();
-		
-		int maxScore = Integer.MAX_VALUE;
-		Map<Board, Double> mobilityBoards = new HashMap<Board, Double>();
-		Board temp;
-		for (Board b : boardStates) {
-			
-			int mobilityScore = 0;
-			Board prev = new Board(b);
-			
-			for (int y = 0; y < size; y++) {
-				for (int x = 0; x < size; x++) {
-					if(prev.move(x,y)) { // valid move
-						temp = new Board(prev);
-						for(int c = 0; c < size; c++) {
-							for(int d = 0; d < size; d++) {
-								if(temp.move(c,d)) // valid move
-									mobilityScore++;
-								temp = new Board(prev);
-							}
-						}
-						mobilityBoards.put(temp, new Double(mobilityScore));
-						prev = new Board(b);
-						mobilityScore = 0;
-					}
-				}
-			}
-			
-			utilities.put(b, 0.0);
-			int lowestMobilityScore = Integer.MAX_VALUE;
-			if(mobilityBoards.size() != 0) {
-				lowestMobilityScore = Collections.min(mobilityBoards.values()).intValue();
-			}
-			
-			if(lowestMobilityScore < maxScore) {
-				maxScore = lowestMobilityScore;
-				bestBoards.clear();
-				bestBoards.add(b);
-			} else if(lowestMobilityScore == maxScore) {
-				bestBoards.add(b);
-			}
-			
-			mobilityBoards = new HashMap<Board, Double>();		
-		}
-		
-		for(Board b : bestBoards) {
-			utilities.put(b, 1.0);
+	public void score(long[] players, long[] opponents, int count, double[] out) {
+		for (int i = 0; i < count; i++) {
+			out[i] = -current(opponents[i], players[i], size); // lowest opponent mobility is best
 		}
-		
-		return utilities;
+		markBest(out, count);
+	}
+
+	// as a leaf evaluation - player's current and potential mobility less opponent's
+	@Override
+	public int evaluate(long player, long opponent) {
+		int currentMobility = current(player, opponent, size) - current(opponent, player, size);
+		int potentialMobility = potential(player, opponent, size) - potential(opponent, player, size);
+		return CURRENT_WEIGHT * currentMobility + potentialMobility;
 	}
 
 	@Override
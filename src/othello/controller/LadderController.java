@@ -1,42 +1,94 @@
 package othello.controller;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import othello.ai.ReversiAI;
 import othello.controller.TestController.TestObserver;
 import othello.model.Board;
 import othello.view.TestFrame;
 
+// round robin of every AI in TestFrame.AI against every other, FOLDS times over
+//
+// the pairings are independent, so they are played at once on a pool of worker threads, each
+// with its own AI instances. the ladder takes as long as its slowest worker, so whenever a worker
+// is free it takes the pairing expected to take longest (longest processing time first) -
+// expected from each AI's thinking time per game in the pairings played so far, including
+// earlier ladders run by the same controller. pairings with an AI that hasn't been timed yet go
+// first, so that every AI is measured early
+//
+// AIs are ranked by Bradley-Terry / Elo ratings fitted to all the games played, with confidence
+// intervals. runAdaptive() skips the full round robin and plays the pairings the ratings are
+// least sure about instead, so a ladder of many AIs needs far fewer than n^2 pairings
 public class LadderController {
 	
-	private static class Score implements Comparable<Score>{
+	private static class Score {
 		private String aiName;
-		private Integer score = new Integer(0);
-		private ReversiAI ai;
+		private int score = 0;
+		private double elapsed = 0.0;	// thinking time over all pairings, in seconds
+		private int games = 0;			// games played over all pairings
 		
 		public Score(String aiName) {
 			this.aiName = aiName;
-			this.ai = ReversiAI.getAIByName(aiName);
 		}
-
-		@Override
-		public int compareTo(Score score) {
-			return this.score.compareTo(score.score);
+		
+		private synchronized void add(int wins, double time, int played) {
+			score += wins;
+			elapsed += time;
+			games += played;
+		}
+		
+		// seconds of thinking per game so far, infinite before the first pairing finishes
+		private synchronized double perGame() {
+			return (games == 0) ? Double.POSITIVE_INFINITY : elapsed / games;
+		}
+	}
+	
+	// one TestController run between two AIs
+	private class Pairing {
+		private final int i;
+		private final int j;
+		private final Score left;
+		private final Score right;
+		
+		public Pairing(int i, int j) {
+			this.i = i;
+			this.j = j;
+			this.left = scores.get(i);
+			this.right = scores.get(j);
+		}
+		
+		private double cost() {
+			return left.perGame() + right.perGame();
 		}
 	}
 
 	private static final int FOLDS = 5;
+	private static final int GAMES = 20; // per direction, per pairing
+	private static final int TABLE_MB = 4; // transposition table of each engine - several pairings play at once
 	
+	// LadderController [workers] [pairings] - with a number of pairings, an adaptive ladder
 	public static void main(String[] args) {
 		LadderController ladder = new LadderController();
-		ladder.runLadder();
+		if(args.length > 0) ladder.setWorkers(Integer.parseInt(args[0]));
+		if(args.length > 1) ladder.runAdaptive(Integer.parseInt(args[1]));
+		else ladder.runLadder();
 	}
 	
 	
 	List<Score> scores;
-	private int percentComplete;
+	private Ratings ratings;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	
+	private List<Pairing> pending = new ArrayList<Pairing>();
+	private int adaptiveLeft = 0; // pairings still to be chosen by the ratings
+	private int[] busy; // pairings each AI is playing in right now, so adaptive pairings spread out
+	private int completed;
+	private int total;
 	
 	public LadderController() {
 		scores = new ArrayList<Score>();
@@ -44,8 +96,16 @@ public class LadderController {
 		for(int i = 0; i < TestFrame.AI.length; i++) {
 			scores.add(new Score(TestFrame.AI[i]));
 		}
+		ratings = new Ratings(TestFrame.AI);
+		busy = new int[scores.size()];
 	}
 	
+	public Ratings getRatings() { return ratings; }
+	
+	// number of pairings played at once
+	public void setWorkers(int workers) { this.workers = workers; }
+	public int getWorkers() { return workers; }
+	
 	private TestObserver observer = new TestObserver() {
 
 		@Override
@@ -60,44 +120,105 @@ public class LadderController {
 	
 	public void runLadder() {
 		
-		Score left;
-		Score right;
-		
 		int n = scores.size();
-		int current;
-		int totalPerFold = ((n * n) - n);
-		int total = totalPerFold * FOLDS;
-		
-		for(int iterations = 0; iterations < FOLDS; iterations++) {
-			for(int i = 0; i < n; i++) {
-				for(int j = i + 1; j < n; j++) {
-					if(i == j) {
-						continue;
+		
+		synchronized(this) {
+			pending.clear();
+			for(int iterations = 0; iterations < FOLDS; iterations++) {
+				for(int i = 0; i < n; i++) {
+					for(int j = i + 1; j < n; j++) {
+						pending.add(new Pairing(i, j));
 					}
-					left = scores.get(i);
-					right = scores.get(j);
-					
-					ReversiAI agent1 = left.ai;
-					ReversiAI agent2 = right.ai;
-					
-					TestController tester = new TestController(8, agent1, agent2);
-					tester.run(20, observer);
-					
-					left.score += tester.getAgent1Wins();
-					right.score += tester.getAgent2Wins();
-					
-					current = (iterations * totalPerFold) + (i * n) + j;
-					
-					percentComplete = (current * 100) / (total);
-					System.out.println("Complete: " + percentComplete + "% - " + left.aiName + " vs. " + right.aiName + ", Winner: " + tester.getWinner().getClass().getSimpleName());
 				}
 			}
+			adaptiveLeft = 0;
+			completed = 0;
+			total = pending.size();
 		}
 		
-		Collections.sort(scores);
+		runPairings();
+	}
+	
+	// play 'pairings' pairings, each between the two AIs whose ratings overlap the most at the time
+	public void runAdaptive(int pairings) {
+		synchronized(this) {
+			pending.clear();
+			adaptiveLeft = pairings;
+			completed = 0;
+			total = pairings;
+		}
 		
+		runPairings();
+	}
+	
+	private void runPairings() {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(int w = 0; w < workers; w++) {
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for(Pairing p; (p = next()) != null; ) {
+						play(p);
+					}
+					return null;
+				}
+			});
+		}
+		
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			for(Future<Void> f : pool.invokeAll(tasks)) f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		
+		System.out.print(ratings);
 		for(Score score : scores) {
-			System.out.println(score.aiName + "\t" + score.score + "\t" + score.ai.getElapsedTime());
+			System.out.println(score.aiName + "\t" + score.score + "\t" + score.elapsed);
+		}
+	}
+	
+	// the pending pairing expected to take longest (the earliest of equals), or in an adaptive
+	// ladder the least certain one among AIs that aren't already playing - null when done
+	private synchronized Pairing next() {
+		if(adaptiveLeft > 0) {
+			int[] pair = ratings.nextPair(busy);
+			if(pair == null) pair = ratings.nextPair(null); // more workers than free AIs
+			adaptiveLeft--;
+			busy[pair[0]]++;
+			busy[pair[1]]++;
+			return new Pairing(pair[0], pair[1]);
+		}
+		if(pending.isEmpty()) return null;
+		
+		int longest = 0;
+		for(int i = 1; i < pending.size(); i++) {
+			if(pending.get(i).cost() > pending.get(longest).cost()) longest = i;
+		}
+		Pairing p = pending.remove(longest);
+		busy[p.i]++;
+		busy[p.j]++;
+		return p;
+	}
+	
+	private void play(Pairing p) {
+		TestController tester = new TestController(8, TestController.byName(p.left.aiName, TABLE_MB),
+				TestController.byName(p.right.aiName, TABLE_MB));
+		tester.run(GAMES, observer);
+		
+		int wins1 = tester.getAgent1Wins(), wins2 = tester.getAgent2Wins();
+		p.left.add(wins1, tester.getAgent1ElapsedTime(), 2 * GAMES);
+		p.right.add(wins2, tester.getAgent2ElapsedTime(), 2 * GAMES);
+		ratings.add(p.i, p.j, wins1, wins2, 2 * GAMES - wins1 - wins2);
+		
+		synchronized(this) {
+			busy[p.i]--;
+			busy[p.j]--;
+			completed++;
+			System.out.println("Complete: " + (completed * 100) / total + "% - " + p.left.aiName + " vs. " + p.right.aiName + ", Winner: " + tester.getWinner().getClass().getSimpleName());
 		}
 	}
 
@@ -9,6 +9,8 @@ import othello.view.ReversiGUI;
 
 public class OnePlayerController extends Controller
 {
+	private static final long MOVE_TIME = 2000; // milliseconds the AI may think for
+	
 	ReversiAI r;            // AI to control the non-human player
 	
 	AIThread aiThread;
@@ -28,6 +30,7 @@ public class OnePlayerController extends Controller
 		newGame();
 		
 		aiThread = new AIThread(r, this, Board.WHITE);
+		aiThread.setPondering(true); // search while the human thinks
 		aiThread.start();
 	}
 	
@@ -38,6 +41,7 @@ public class OnePlayerController extends Controller
 		active = true;
 		b = new Board(BoardGUI.ROWS);
 		r = new MinimaxABHeuristicAI(8, false);
+		r.setTimeBudget(MOVE_TIME); // deepens towards 8 plies, but answers within the time limit
 
 		r.setSize(b.getSize());
 		update();
@@ -0,0 +1,220 @@
+package othello.controller;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Bradley-Terry / Elo ratings from game results
+//
+// each player i has a strength g[i], and i beats j with probability g[i] / (g[i] + g[j]) - the
+// Elo model, with rating 400 log10(g[i]). fit() finds the maximum likelihood strengths with
+// Hunter's minorization-maximization iteration, counting a draw as half a win for each side.
+// every player also gets one virtual draw against a fixed player, so that ratings stay finite
+// for a player that has only won or only lost. ratings are reported relative to the average
+// player, whose rating is 0
+//
+// confidence intervals come from the inverse of the Fisher information of the log strengths,
+// for each rating less the average.
+// nextPair() picks the two players whose intervals overlap the most - the pairing whose result
+// says most about the order - so a ladder can spend its games where the ranking is unsure
+// instead of on every pairing. thread-safe
+public class Ratings
+{
+	public static final double PRIOR_GAMES = 1; // virtual draws against the anchor, per player
+
+	private static final int ITERATIONS = 10000;
+	private static final double TOLERANCE = 1e-9;
+	private static final double Z95 = 1.96;
+	private static final double ELO_PER_NATURAL = 400 / Math.log(10); // Elo per unit of ln(g)
+
+	private final String[] names;
+	private final double[][] wins; // wins[i][j] - i's score against j, draws counting a half
+	private final int[][] games; // games played between i and j
+
+	private final double[] strength; // fitted g, anchor 1
+	private final double[] elo; // relative to the average
+	private final double[] error; // 95% half-interval, in Elo
+	private boolean fitted = false;
+
+	public Ratings(String[] names)
+	{
+		this.names = names.clone();
+		int n = names.length;
+		wins = new double[n][n];
+		games = new int[n][n];
+		strength = new double[n];
+		elo = new double[n];
+		error = new double[n];
+		Arrays.fill(strength, 1);
+	}
+
+	public int getPlayers() { return names.length; }
+	public String getName(int i) { return names[i]; }
+
+	// a pairing's results, from i's side
+	public synchronized void add(int i, int j, int iWins, int jWins, int draws)
+	{
+		wins[i][j] += iWins + 0.5 * draws;
+		wins[j][i] += jWins + 0.5 * draws;
+		games[i][j] += iWins + jWins + draws;
+		games[j][i] += iWins + jWins + draws;
+		fitted = false;
+	}
+
+	public synchronized int getGames(int i, int j) { return games[i][j]; }
+
+	public synchronized double getElo(int i)
+	{
+		fit();
+		return elo[i];
+	}
+
+	// half width of the 95% confidence interval of getElo(i)
+	public synchronized double getError(int i)
+	{
+		fit();
+		return error[i];
+	}
+
+	// the two players (i < j) not busy (busy[i] > 0) whose confidence intervals overlap the most,
+	// ties going to the pair with fewer games between them - null if fewer than two are free.
+	// busy may be null for no one busy
+	public synchronized int[] nextPair(int[] busy)
+	{
+		fit();
+		int[] best = null;
+		double bestOverlap = Double.NEGATIVE_INFINITY;
+		int n = names.length;
+		for(int i = 0; i < n; i++)
+		{
+			if(busy != null && busy[i] > 0) continue;
+			for(int j = i + 1; j < n; j++)
+			{
+				if(busy != null && busy[j] > 0) continue;
+				double ei = elo[i], ej = elo[j];
+				double overlap = Math.min(ei + error[i], ej + error[j]) - Math.max(ei - error[i], ej - error[j]);
+				if(overlap > bestOverlap || (overlap == bestOverlap && games[i][j] < games[best[0]][best[1]]))
+				{
+					bestOverlap = overlap;
+					best = new int[] { i, j };
+				}
+			}
+		}
+		return best;
+	}
+
+	// maximum likelihood strengths and their errors, if results have come in since the last fit
+	private void fit()
+	{
+		if(fitted) return;
+		int n = names.length;
+
+		double[] score = new double[n]; // total, with the virtual draws
+		for(int i = 0; i < n; i++)
+		{
+			score[i] = 0.5 * PRIOR_GAMES;
+			for(int j = 0; j < n; j++) score[i] += wins[i][j];
+		}
+
+		for(int it = 0; it < ITERATIONS; it++)
+		{
+			double change = 0;
+			for(int i = 0; i < n; i++)
+			{
+				double sum = PRIOR_GAMES / (strength[i] + 1);
+				for(int j = 0; j < n; j++)
+					if(games[i][j] > 0) sum += games[i][j] / (strength[i] + strength[j]);
+
+				double g = score[i] / sum;
+				change = Math.max(change, Math.abs(Math.log(g / strength[i])));
+				strength[i] = g;
+			}
+			if(change < TOLERANCE) break;
+		}
+
+		// Fisher information of ln g, inverted for the covariance
+		double[][] info = new double[n][n];
+		for(int i = 0; i < n; i++)
+		{
+			double p = strength[i] / (strength[i] + 1);
+			info[i][i] += PRIOR_GAMES * p * (1 - p);
+			for(int j = 0; j < n; j++)
+			{
+				if(i == j || games[i][j] == 0) continue;
+				double q = strength[i] / (strength[i] + strength[j]), v = games[i][j] * q * (1 - q);
+				info[i][i] += v;
+				info[i][j] -= v;
+			}
+		}
+		double[][] covariance = invert(info);
+		
+		// centre on the average - var(x_i - mean) = C_ii - 2 mean_j C_ij + mean_jk C_jk
+		double mean = 0, all = 0;
+		double[] rowMean = new double[n];
+		for(int i = 0; i < n; i++)
+		{
+			mean += Math.log(strength[i]) / n;
+			for(int j = 0; j < n; j++) rowMean[i] += covariance[i][j] / n;
+			all += rowMean[i] / n;
+		}
+		for(int i = 0; i < n; i++)
+		{
+			elo[i] = ELO_PER_NATURAL * (Math.log(strength[i]) - mean);
+			error[i] = Z95 * ELO_PER_NATURAL * Math.sqrt(Math.max(covariance[i][i] - 2 * rowMean[i] + all, 0));
+		}
+
+		fitted = true;
+	}
+
+	// Gauss-Jordan elimination - the information matrix is symmetric positive definite
+	private static double[][] invert(double[][] m)
+	{
+		int n = m.length;
+		double[][] a = new double[n][2 * n];
+		for(int i = 0; i < n; i++)
+		{
+			System.arraycopy(m[i], 0, a[i], 0, n);
+			a[i][n + i] = 1;
+		}
+
+		for(int c = 0; c < n; c++)
+		{
+			int pivot = c;
+			for(int r = c + 1; r < n; r++) if(Math.abs(a[r][c]) > Math.abs(a[pivot][c])) pivot = r;
+			double[] t = a[c]; a[c] = a[pivot]; a[pivot] = t;
+
+			double d = a[c][c];
+			for(int k = 0; k < 2 * n; k++) a[c][k] /= d;
+			for(int r = 0; r < n; r++)
+			{
+				if(r == c || a[r][c] == 0) continue;
+				double f = a[r][c];
+				for(int k = 0; k < 2 * n; k++) a[r][k] -= f * a[c][k];
+			}
+		}
+
+		double[][] inverse = new double[n][n];
+		for(int i = 0; i < n; i++) System.arraycopy(a[i], n, inverse[i], 0, n);
+		return inverse;
+	}
+
+	// one line per player, best first - Elo, error and games
+	public synchronized String toString()
+	{
+		fit();
+		int n = names.length;
+		Integer[] order = new Integer[n];
+		for(int i = 0; i < n; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) { return Double.compare(elo[b], elo[a]); }
+		});
+
+		StringBuilder sb = new StringBuilder();
+		for(int i : order)
+		{
+			int played = 0;
+			for(int j = 0; j < n; j++) played += games[i][j];
+			sb.append(String.format("%-40s %7.1f +/- %5.1f  (%d games)%n", names[i], elo[i], error[i], played));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,107 @@
+package othello.controller;
+
+// sequential probability ratio test for engine matches
+//
+// H0: agent1 is elo0 Elo stronger than agent2, H1: it is elo1 stronger. after each game the
+// log likelihood ratio of H1 to H0 is compared with bounds set by the error rates - alpha, the
+// chance of accepting H1 when H0 holds, and beta the other way round - and the match stops as
+// soon as it crosses one. a clear-cut match is decided in a few dozen games instead of hundreds
+//
+// the ratio uses the normal approximation to the trinomial (win / draw / loss) score, as
+// chess engine testing frameworks do. half a win and half a loss are added to the counts, so
+// that a run of identical results doesn't give a zero variance and an infinite ratio
+// thread-safe - games can be added from several workers
+public class SPRT
+{
+	public static final double DEFAULT_ALPHA = 0.05;
+	public static final double DEFAULT_BETA = 0.05;
+	
+	private static final double Z95 = 1.96; // two-sided 95% normal quantile
+	
+	private final double elo0, elo1;
+	private final double lower, upper; // accept H0 at or below, H1 at or above
+	
+	private int wins = 0, draws = 0, losses = 0; // for agent1
+	
+	public SPRT(double elo0, double elo1) { this(elo0, elo1, DEFAULT_ALPHA, DEFAULT_BETA); }
+	
+	public SPRT(double elo0, double elo1, double alpha, double beta)
+	{
+		if(elo1 <= elo0) throw new IllegalArgumentException("elo1 must be above elo0");
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		lower = Math.log(beta / (1 - alpha));
+		upper = Math.log((1 - beta) / alpha);
+	}
+	
+	// result of a game for agent1 - 1 win, 0 draw, -1 loss
+	public synchronized void add(int result)
+	{
+		if(result > 0) wins++;
+		else if(result < 0) losses++;
+		else draws++;
+	}
+	
+	public synchronized int getGames() { return wins + draws + losses; }
+	public synchronized int getWins() { return wins; }
+	public synchronized int getDraws() { return draws; }
+	public synchronized int getLosses() { return losses; }
+	
+	public double getLowerBound() { return lower; }
+	public double getUpperBound() { return upper; }
+	
+	// log likelihood ratio of H1 to H0 for the games so far
+	public synchronized double getLLR()
+	{
+		int n = getGames();
+		if(n == 0) return 0;
+		
+		double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+		return n * (s1 - s0) * (2 * score() - s0 - s1) / (2 * variance());
+	}
+	
+	// 1 if H1 is accepted, -1 if H0 is, 0 while undecided
+	public synchronized int getStatus()
+	{
+		double llr = getLLR();
+		return (llr >= upper) ? 1 : (llr <= lower) ? -1 : 0;
+	}
+	
+	public boolean isDecided() { return getStatus() != 0; }
+	
+	// estimated Elo difference of agent1 over agent2
+	public synchronized double getElo() { return elo(score()); }
+	
+	// half width of the 95% confidence interval of getElo() (the larger side - the scale isn't linear)
+	public synchronized double getEloError()
+	{
+		double s = score(), margin = Z95 * Math.sqrt(variance() / Math.max(getGames(), 1));
+		double low = elo(Math.max(s - margin, 1e-6)), high = elo(Math.min(s + margin, 1 - 1e-6));
+		return Math.max(high - elo(s), elo(s) - low);
+	}
+	
+	public static double expectedScore(double elo) { return 1 / (1 + Math.pow(10, -elo / 400)); }
+	
+	public static double elo(double score) { return -400 * Math.log10(1 / score - 1); }
+	
+	// mean score per game with the half win and half loss added
+	private double score()
+	{
+		return (wins + 0.5 + 0.5 * draws) / (getGames() + 1);
+	}
+	
+	// variance of the score of one game
+	private double variance()
+	{
+		double s = score(), n = getGames() + 1;
+		return ((wins + 0.5) * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + (losses + 0.5) * s * s) / n;
+	}
+	
+	public synchronized String toString()
+	{
+		int status = getStatus();
+		String verdict = (status > 0) ? "H1 accepted" : (status < 0) ? "H0 accepted" : "undecided";
+		return String.format("SPRT [%.1f, %.1f]: LLR %.2f (%.2f, %.2f) %s after %d games (+%d -%d =%d), Elo %.1f +/- %.1f",
+				elo0, elo1, getLLR(), lower, upper, verdict, getGames(), wins, losses, draws, getElo(), getEloError());
+	}
+}
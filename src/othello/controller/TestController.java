@@ -1,11 +1,27 @@
 package othello.controller;
 
 import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import othello.ai.*;
 import othello.model.Board;
+import othello.model.GameRecord;
+import othello.model.GameRecordWriter;
 import othello.view.*;
 
 // controller for a two AI test harness
+// with AI factories and more than one worker, the games are shared out over a pool of threads.
+// engines keep mutable state (Random, move count, timer), so each worker plays with its own
+// pair made by the factories, and its results and elapsed times are added in when it finishes.
+// agents are only made when a game needs them - the first worker plays with agent1 and agent2
 public class TestController implements Logger
 {
 	private static final boolean VERBOSE = false; // enable information messages - not good for batch runs
@@ -16,6 +32,17 @@ public class TestController implements Logger
 	private ReversiAI winner;
 	private ReversiAI loser;
 	
+	private AIFactory factory1; // null unless created from factories
+	private AIFactory factory2;
+	private int workers = 1;
+	private double elapsed1 = 0.0; // time spent by the other workers' copies of agent1
+	private double elapsed2 = 0.0;
+	
+	private GameRecordWriter recorder; // null unless games are being kept
+	private final ThreadLocal<GameRecord> records = new ThreadLocal<GameRecord>() {
+		protected GameRecord initialValue() { return new GameRecord(); }
+	};
+	
 	private ResultSet resultsDirection1 = new ResultSet();
 	private ResultSet resultsDirection2 = new ResultSet();
 	private int boardSize;			// size of game board
@@ -24,6 +51,29 @@ public class TestController implements Logger
 		private int runs = 0;				// number of times game was played
 		private int bwins = 0;			// number of wins by black
 		private int wwins = 0;			// number of wins by white
+		
+		private synchronized void add(ResultSet r) {
+			runs += r.runs;
+			bwins += r.bwins;
+			wwins += r.wwins;
+		}
+	}
+	
+	// makes a fresh AI for each worker
+	public interface AIFactory {
+		ReversiAI create();
+	}
+	
+	// factory for one of the AIs in the TestFrame list
+	public static AIFactory byName(final String aiName) {
+		return byName(aiName, TranspositionTable.DEFAULT_SIZE_MB);
+	}
+	
+	// as above, with transposition tables of 'tableSizeMB' - keeps the memory down when many play at once
+	public static AIFactory byName(final String aiName, final int tableSizeMB) {
+		return new AIFactory() {
+			public ReversiAI create() { return ReversiAI.getAIByName(aiName, tableSizeMB); }
+		};
 	}
 
 	private Logger logger;
@@ -38,6 +88,22 @@ public class TestController implements Logger
 		game.report();
 	}
 	
+	// create a new tester that can play in parallel - agents for each worker come from the factories
+	public TestController(int boardSize, AIFactory black, AIFactory white)
+	{
+		this.boardSize = boardSize;
+		factory1 = black;
+		factory2 = white;
+		this.logger = this;
+	}
+	
+	// number of games played at once - only used when created from factories
+	public void setWorkers(int workers) { this.workers = workers; }
+	public int getWorkers() { return workers; }
+	
+	// write every game played from now on to 'recorder' (null to stop) - the caller closes it
+	public void setRecorder(GameRecordWriter recorder) { this.recorder = recorder; }
+	
 	// create a new tester, with a given size and specified AIs for black and white
 	public TestController(int boardSize, ReversiAI black, ReversiAI white)
 	{
@@ -58,11 +124,16 @@ public class TestController implements Logger
 	// run AIs against each other n times
 	public void run(int n, TestObserver observer)
 	{
-		runSingle(n, resultsDirection1, observer);
-		swapAgents();
-		
-		runSingle(n, resultsDirection2, observer);
-		swapAgents();
+		createAgents();
+		if(factory1 != null && workers > 1) runParallel(n, observer);
+		else
+		{
+			runSingle(n, resultsDirection1, observer);
+			swapAgents();
+			
+			runSingle(n, resultsDirection2, observer);
+			swapAgents();
+		}
 		
 		if(resultsDirection1.bwins + resultsDirection2.wwins > resultsDirection1.wwins + resultsDirection2.bwins) {
 			winner = agent1;
@@ -73,6 +144,136 @@ public class TestController implements Logger
 		}
 	}
 	
+	// the same 2n games, taken in turn by 'workers' threads - each game is independent, so the
+	// results are distributed as for a sequential run. notifyStatus counts every worker's games,
+	// but only the first worker's are shown to notifyBoardChange, so it still sees whole games one
+	// after another. with an observer, nothing but the report goes to the logger
+	private void runParallel(int n, TestObserver observer)
+	{
+		playGames(2 * n, null, observer);
+	}
+	
+	// play agent1 against agent2, alternating colours, until 'test' accepts one of its hypotheses
+	// about agent1's Elo advantage, or maxGames have been played. with factories and more than one
+	// worker the games are played in parallel, and games already under way when the test is
+	// decided still count
+	public void runSPRT(SPRT test, int maxGames, TestObserver observer)
+	{
+		createAgents();
+		playGames(maxGames, test, observer);
+		winner = (test.getElo() >= 0) ? agent1 : agent2;
+		loser = (winner == agent1) ? agent2 : agent1;
+		logger.logln(test.toString());
+	}
+	
+	// the SPRT form of run(n)
+	public void runSPRT(SPRT test, int maxGames)
+	{
+		runSPRT(test, maxGames, null);
+	}
+	
+	// play up to 'total' games, on the workers if there are factories for them. without a test,
+	// the first half has agent1 black; with one, colours alternate and play stops once it's decided
+	private void playGames(final int total, final SPRT test, final TestObserver observer)
+	{
+		if(observer == null) {
+			printHeader();
+			logger.log("=");
+		}
+		
+		final AtomicInteger next = new AtomicInteger(), done = new AtomicInteger();
+		if(factory1 == null || workers <= 1) playGames(agent1, agent2, total, test, next, done, observer, observer);
+		else
+		{
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for(int w = 0; w < workers; w++)
+			{
+				final boolean first = (w == 0); // plays with agent1 and agent2, and shows its boards
+				tasks.add(new Callable<Void>() {
+					public Void call()
+					{
+						if(first) {
+							playGames(agent1, agent2, total, test, next, done, observer, observer);
+							return null;
+						}
+						
+						ReversiAI a1 = factory1.create(), a2 = factory2.create();
+						a1.setSize(boardSize);
+						a2.setSize(boardSize);
+						playGames(a1, a2, total, test, next, done, observer, null);
+						addElapsed(a1.getElapsedTime(), a2.getElapsedTime());
+						return null;
+					}
+				});
+			}
+			
+			ExecutorService pool = Executors.newFixedThreadPool(workers);
+			try {
+				for(Future<Void> f : pool.invokeAll(tasks)) f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+		
+		if(observer == null) {
+			logger.logln("=\n");
+		}
+	}
+	
+	// one worker's share of playGames, with its own copies of the agents. progress goes to 'observer'
+	// (or the log if null), and the boards to 'watcher' - null for a worker whose games aren't shown
+	private void playGames(ReversiAI a1, ReversiAI a2, int total, SPRT test, AtomicInteger next, AtomicInteger done,
+			TestObserver observer, TestObserver watcher)
+	{
+		ResultSet r1 = new ResultSet(), r2 = new ResultSet();
+		
+		for(int game; (test == null || !test.isDecided()) && (game = next.getAndIncrement()) < total; )
+		{
+			boolean agent1Black = (test == null) ? (game < total / 2) : (game % 2 == 0);
+			int result = agent1Black ? play(r1, a1, a2, watcher) : play(r2, a2, a1, watcher);
+			
+			if(test != null) {
+				int agent1Colour = agent1Black ? Board.BLACK : Board.WHITE;
+				test.add((result == Board.EMPTY) ? 0 : (result == agent1Colour) ? 1 : -1);
+			}
+			progress(done.incrementAndGet(), total, observer);
+		}
+		
+		resultsDirection1.add(r1);
+		resultsDirection2.add(r2);
+	}
+	
+	private synchronized void progress(int done, int total, TestObserver observer) {
+		if(observer == null) {
+			if((100*(done-1))/total < (100*done)/total) logger.log("=");
+		} else {
+			observer.notifyStatus(done * 100 / total);
+		}
+	}
+	
+	private synchronized void addElapsed(double agent1Time, double agent2Time) {
+		elapsed1 += agent1Time;
+		elapsed2 += agent2Time;
+	}
+	
+	// total thinking time of each agent, over all workers
+	public synchronized double getAgent1ElapsedTime() { return ((agent1 == null) ? 0 : agent1.getElapsedTime()) + elapsed1; }
+	public synchronized double getAgent2ElapsedTime() { return ((agent2 == null) ? 0 : agent2.getElapsedTime()) + elapsed2; }
+	
+	// make agent1 and agent2 from the factories, the first time they are needed
+	private void createAgents() {
+		if(agent1 != null) return;
+		
+		agent1 = factory1.create();
+		agent1.setSize(boardSize);
+		agent2 = factory2.create();
+		agent2.setSize(boardSize);
+	}
+	
 	private void swapAgents() {
 		ReversiAI tempAgent = agent1;
 		agent1 = agent2;
@@ -139,11 +340,11 @@ public class TestController implements Logger
 	public void report(ResultSet results)
 	{
 		if(results == resultsDirection1) {
-			logger.logln("Black: " + agent1.getClass().getSimpleName() + String.format(" (%.2fs)", agent1.getElapsedTime()));
-			logger.logln("White: " + agent2.getClass().getSimpleName() + String.format(" (%.2fs)", agent2.getElapsedTime()));			
+			logger.logln("Black: " + agent1.getClass().getSimpleName() + String.format(" (%.2fs)", getAgent1ElapsedTime()));
+			logger.logln("White: " + agent2.getClass().getSimpleName() + String.format(" (%.2fs)", getAgent2ElapsedTime()));			
 		} else {
-			logger.logln("Black: " + agent2.getClass().getSimpleName() + String.format(" (%.2fs)", agent2.getElapsedTime()));
-			logger.logln("White: " + agent1.getClass().getSimpleName() + String.format(" (%.2fs)", agent1.getElapsedTime()));
+			logger.logln("Black: " + agent2.getClass().getSimpleName() + String.format(" (%.2fs)", getAgent2ElapsedTime()));
+			logger.logln("White: " + agent1.getClass().getSimpleName() + String.format(" (%.2fs)", getAgent1ElapsedTime()));
 		}
 		
 		logger.logln("");
@@ -157,29 +358,42 @@ public class TestController implements Logger
 	}
 	
 	public void play(ResultSet results, TestObserver observer)
+	{
+		play(results, agent1, agent2, observer);
+	}
 	
+	// play one game between the given black and white AIs, and return the winner (Board.EMPTY for a tie)
+	private int play(ResultSet results, ReversiAI black, ReversiAI white, TestObserver observer)
 	{
 		results.runs++;
-		ReversiAI activeAI = agent1, inactiveAI = agent2; // black is first to move
+		ReversiAI activeAI = black, inactiveAI = white; // black is first to move
 		ReversiAI aiTemp;
 		Board b = new Board(boardSize); // create game board
 		Point p = new Point(-1, -1);
 		if(VERBOSE) b.print();
 		
+		GameRecord record = (recorder != null) ? records.get() : null;
+		if(record != null) record.start(boardSize, black.getClass().getSimpleName(), black.getDepth(), black.getSeed(),
+				white.getClass().getSimpleName(), white.getDepth(), white.getSeed());
+		
 		while(true)
 		{
 			logDebug(b.getActiveName() + " to move.");
+			long start = System.nanoTime();
 			Board tmp = activeAI.nextMove(b, p.x, p.y); // get the next move
 
 			if(tmp == null) // player couldn't move
 			{
+				long passNanos = System.nanoTime() - start;
 				logDebug(b.getActiveName() + " can't move.");
 				b.turn(); // next player's turn
 				logDebug(b.getActiveName() + " to move.");
 				{ aiTemp = activeAI; activeAI = inactiveAI; inactiveAI = aiTemp; } // swap players
+				start = System.nanoTime();
 				tmp = activeAI.nextMove(b, -1, -1);
 				
-				if(tmp == null) break; // neither player could move
+				if(tmp == null) break; // neither player could move - the game is over, not passed
+				if(record != null) record.addMove(GameRecord.PASS, passNanos);
 			}
 			
 			b = tmp; // save new board
@@ -188,6 +402,7 @@ public class TestController implements Logger
 			if(observer != null) observer.notifyBoardChange(b);
 			
 			p = activeAI.getMove();
+			if(record != null) record.addMove(p.y * boardSize + p.x, System.nanoTime() - start);
 			logDebug(b.getActiveName() + " move to (" + p.x + "," + p.y + ").");
 			if(VERBOSE) b.print();
 			
@@ -195,8 +410,18 @@ public class TestController implements Logger
 			{ aiTemp = activeAI; activeAI = inactiveAI; inactiveAI = aiTemp; } // switch AIs
 		}
 
+		int winner = b.getWinning();
+		if(record != null)
+		{
+			record.finish(b);
+			try {
+				recorder.write(record);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 		logDebug(winnerString(b, results));
-
+		return winner;
 	}
 	
 	private String winnerString(Board b, ResultSet results)
@@ -7,9 +7,15 @@ important methods are:
   - move(int, int) - attempt to put a piece on coordinate x, y for the active player
     -if successful, the board is updated with to include newly captured pieces
     -if unsuccessful, the board is not modified and false is returned
+  - move(int) - same, with the square given as a bit index (y * size + x)
+  - flips(int) - bitboard of the pieces a move to the given square would capture
+  - makeMove(int) / unmakeMove(int, long) - apply and take back a move in place, for searches
   -turn() - end the turn of the current player
   -canMove() - return true if the active (current) player can make a move
+  -getMoveMask() - bitboard of the squares the active player can move to (bit y * size + x)
   -gameOver() - return true if neither player can move
+  -equals(Object)/hashCode() - compare by position, getPosition() for an immutable key
+  -getHash() - 64 bit Zobrist key of the position, kept up to date by every move and turn
 
 */
 
@@ -32,8 +38,93 @@ public class Board
   
   private boolean active = true; // true if it's black's turn, false if it's white's turn
   
+  private long hash = 0;  // Zobrist key of the position, maintained incrementally
+  
   private int blast = -1;	// coordinates of last black move
   private int wlast = -1; // coordinates of last white move
+
+  // shift-and-mask tables, indexed by board size (a long holds at most 8 x 8)
+  // the four shift amounts are east (1), south (size), southeast (size + 1), southwest (size - 1)
+  // left shifts move towards higher squares, right shifts towards lower ones - the masks
+  // clear the squares a shift would wrap into from the opposite edge of the board
+  private static final int MAX_SIZE = 8;
+  private static final int[][] SHIFTS = new int[MAX_SIZE + 1][];
+  private static final long[][] LEFT_MASKS = new long[MAX_SIZE + 1][];
+  private static final long[][] RIGHT_MASKS = new long[MAX_SIZE + 1][];
+  private static final long[] FULL_MASKS = new long[MAX_SIZE + 1];
+
+  // Zobrist keys - one per square for each colour, plus one for white to move
+  // FLIP_KEYS[k][b] is the change in the key when the pieces in byte k of a mask (bit pattern b) change colour
+  private static final long[][] SQUARE_KEYS = new long[2][64];
+  private static final long[][] FLIP_KEYS = new long[8][256];
+  private static final long SIDE_KEY;
+
+  static
+  {
+  	long seed = 0x2545F4914F6CDD1DL; // fixed, so keys are the same from run to run
+  	for(int c = 0; c < 2; c++)
+  	{
+  		for(int i = 0; i < 64; i++) SQUARE_KEYS[c][i] = seed = nextKey(seed);
+  	}
+  	SIDE_KEY = nextKey(seed);
+  	
+  	for(int k = 0; k < 8; k++)
+  	{
+  		for(int b = 0; b < 256; b++)
+  		{
+  			long key = 0;
+  			for(int i = 0; i < 8; i++)
+  			{
+  				if((b & (1 << i)) != 0) key ^= SQUARE_KEYS[BLACK][k * 8 + i] ^ SQUARE_KEYS[WHITE][k * 8 + i];
+  			}
+  			FLIP_KEYS[k][b] = key;
+  		}
+  	}
+  	
+  	for(int n = 1; n <= MAX_SIZE; n++)
+  	{
+  		long full = (n == MAX_SIZE) ? -1L : (1L << (n * n)) - 1;
+  		long first = 0, last = 0; // first and last columns
+  		for(int y = 0; y < n; y++)
+  		{
+  			first |= 1L << (y * n);
+  			last |= 1L << (y * n + n - 1);
+  		}
+  		long notFirst = full & ~first, notLast = full & ~last;
+
+  		FULL_MASKS[n] = full;
+  		SHIFTS[n] = new int[] { 1, n, n + 1, n - 1 };
+  		LEFT_MASKS[n] = new long[] { notFirst, full, notFirst, notLast };
+  		RIGHT_MASKS[n] = new long[] { notLast, full, notLast, notFirst };
+  	}
+  }
+
+  // splitmix64 step - returns the next pseudo-random key after 'seed'
+  private static long nextKey(long seed)
+  {
+  	long z = seed + 0x9E3779B97F4A7C15L;
+  	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+  	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+  	return z ^ (z >>> 31);
+  }
+  
+  // change in the Zobrist key when every piece in 'mask' changes colour
+  private static long flipKey(long mask)
+  {
+  	return FLIP_KEYS[0][(int)mask & 0xFF] ^ FLIP_KEYS[1][(int)(mask >>> 8) & 0xFF] ^
+  		FLIP_KEYS[2][(int)(mask >>> 16) & 0xFF] ^ FLIP_KEYS[3][(int)(mask >>> 24) & 0xFF] ^
+  		FLIP_KEYS[4][(int)(mask >>> 32) & 0xFF] ^ FLIP_KEYS[5][(int)(mask >>> 40) & 0xFF] ^
+  		FLIP_KEYS[6][(int)(mask >>> 48) & 0xFF] ^ FLIP_KEYS[7][(int)(mask >>> 56)];
+  }
+  
+  // Zobrist key computed from scratch - matches getHash() of a board holding this position
+  public static long zobrist(long black, long white, int active)
+  {
+  	long key = (active == WHITE) ? SIDE_KEY : 0;
+  	for(long m = black; m != 0; m &= m - 1) key ^= SQUARE_KEYS[BLACK][Long.numberOfTrailingZeros(m)];
+  	for(long m = white; m != 0; m &= m - 1) key ^= SQUARE_KEYS[WHITE][Long.numberOfTrailingZeros(m)];
+  	return key;
+  }
   
   // build a new board, with dimensions size x size
   public Board(int boardsize)
@@ -61,27 +152,33 @@ public class Board
     size = b.size;
     
     active  = b.active;
+    hash = b.hash;
   }
   
-  public boolean equals(Board right)
+  // two boards are equal if they hold the same position - same pieces, same side to move
+  // the hash changes with the board, so don't mutate a board while it is a key in a map
+  @Override
+  public boolean equals(Object o)
   {
-  	return (active_board == right.active_board &&
-  			inactive_board == right.inactive_board && active == right.active);
+  	if(this == o) return true;
+  	if(!(o instanceof Board)) return false;
+  	Board right = (Board)o;
+  	return (active_board == right.active_board && inactive_board == right.inactive_board &&
+  			active == right.active && size == right.size);
   }
   
+  @Override
+  public int hashCode() { return Position.hash(hash); }
+  
+  // immutable copy of the current position, for use as a cache key
+  public Position getPosition() { return new Position(active_board, inactive_board, getActive(), hash); }
+  
   // place a piece at position x, y for the current player
   private void setSquare(int x, int y)
   {
     active_board |= (1L << (y * size + x));
     active_count++;
-  }
-  
-  // flip the piece at position x, y from the inactive player to the active one
-  private void flipSquare(int x, int y)
-  {
-    long val = (1L << (y * size + x));
-    active_board |= val;
-    inactive_board &= ~val;
+    hash ^= SQUARE_KEYS[getActive()][y * size + x];
   }
   
   // returns true if the current player occupies the given square
@@ -105,12 +202,16 @@ public class Board
   
   // getter methods
   public int getSize() { return size; }
+  public long getHash() { return hash; }
   public int getActive() { return active ? BLACK : WHITE; }
   public String getActiveName() { return active ? "Black" : "White"; }
   
   // return the total number of squares - for current player or opponent
   public int getTotal(boolean current) { return current ? active_count : inactive_count; }
   
+  // bitboard of the pieces of the current player or the opponent (bit y * size + x)
+  public long getPieces(boolean current) { return current ? active_board : inactive_board; }
+  
   public int getCornerCount(boolean current)
   {
   	long tmp;
@@ -139,21 +240,66 @@ public class Board
   	return count;
   }
   
-  public int getMoveCount(boolean current)
+  public int getMoveCount(boolean current) { return Long.bitCount(getMoveMask(current)); }
+  
+  // bitboard of the squares the active player can legally move to
+  public long getMoveMask() { return moves(active_board, inactive_board, size); }
+  
+  // bitboard of legal moves - for current player or opponent
+  public long getMoveMask(boolean current)
   {
-  	int count = 0;
-  	Board tmp = new Board(this);
-  	
-  	if(!current) tmp.turn();
+  	if(current) return moves(active_board, inactive_board, size);
+  	else return moves(inactive_board, active_board, size);
+  }
+  
+  // legal moves for 'player' against 'opponent' on a size x size board, as a bitboard
+  // each direction runs a Kogge-Stone occluded fill from the player's pieces through
+  // the opponent's, then steps once more onto an empty square
+  public static long moves(long player, long opponent, int size)
+  {
+  	int[] shifts = SHIFTS[size];
+  	long[] left = LEFT_MASKS[size], right = RIGHT_MASKS[size];
+  	long empty = FULL_MASKS[size] & ~(player | opponent);
+  	long moves = 0;
   	
-  	for(int j = 0; j < size; j++)
+  	for(int d = 0; d < 4; d++)
   	{
-  		for(int i = 0; i < size; i++)
-  		{
-  			if(tmp.move(i, j)) count++; // fixme - could be smarter
-  		}
+  		int s = shifts[d];
+  		
+  		long pro = opponent & left[d];
+  		long gen = player;
+  		gen |= pro & (gen << s);
+  		pro &= pro << s;
+  		gen |= pro & (gen << (2 * s));
+  		pro &= pro << (2 * s);
+  		gen |= pro & (gen << (4 * s));
+  		moves |= ((gen & opponent) << s) & left[d];
+  		
+  		pro = opponent & right[d];
+  		gen = player;
+  		gen |= pro & (gen >>> s);
+  		pro &= pro >>> s;
+  		gen |= pro & (gen >>> (2 * s));
+  		pro &= pro >>> (2 * s);
+  		gen |= pro & (gen >>> (4 * s));
+  		moves |= ((gen & opponent) >>> s) & right[d];
   	}
-  	return count;
+  	return moves & empty;
+  }
+  
+  // the squares next to any of 'pieces' (in all eight directions) on a size x size board,
+  // pieces' own squares not included unless they neighbour another
+  public static long neighbours(long pieces, int size)
+  {
+  	int[] shifts = SHIFTS[size];
+  	long[] left = LEFT_MASKS[size], right = RIGHT_MASKS[size];
+  	long around = 0;
+  	for(int d = 0; d < 4; d++)
+  	{
+  		around |= (pieces << shifts[d]) & left[d];
+  		around |= (pieces >>> shifts[d]) & right[d];
+  	}
+  	return around & FULL_MASKS[size];
   }
   
   public int getEmptyCornerNeighbors(boolean current)
@@ -205,35 +351,107 @@ public class Board
   // the board appropriately, or return false if not possible
   public boolean move(int x, int y)
   {
-    if(getState(x, y) != EMPTY) return false; // current square must be unoccupied
+    if(x < 0 || y < 0 || x >= size || y >= size) return false;
+    return move(y * size + x);
+  }
   
-    int before = active_count;
-    
-    west(x - 1, y); // checks if can capture in this direction, flipping pieces where necessary
-    east(x + 1, y);
-    north(x, y - 1);
-    south(x, y + 1);
-    northwest(x - 1, y - 1);
-    southeast(x + 1, y + 1);
-    northeast(x + 1, y - 1);
-    southwest(x - 1, y + 1);
-    
-    if(before == active_count) return false; // if no changes, move was unsuccessful
-    
-    // place piece at current position
-    setSquare(x, y);
+  // same as move(int, int), with the square given as a bit index (y * size + x)
+  public boolean move(int square)
+  {
+    if(square < 0 || square >= size * size) return false;
+    if(makeMove(square) == 0) return false; // nothing captured, move was unsuccessful
     
     // set last player move.
-    if(active) blast = x + y * size;
-    else wlast = x + y * size;
+    if(active) blast = square;
+    else wlast = square;
     
     return true;
   }
   
+  // in-place move for search code - place a piece on 'square' for the active player and
+  // return the captured pieces, which unmakeMove needs to take the move back
+  // returns 0 and leaves the board untouched if the move is illegal
+  // the turn is not changed, and the last move record is not updated
+  public long makeMove(int square)
+  {
+    long placed = 1L << square;
+    if(((active_board | inactive_board) & placed) != 0) return 0; // current square must be unoccupied
+    
+    long flipped = flips(square);
+    if(flipped == 0) return 0;
+    
+    int count = Long.bitCount(flipped);
+    active_board |= flipped | placed; // captured pieces plus the new one
+    inactive_board &= ~flipped;
+    active_count += count + 1;
+    inactive_count -= count;
+    hash ^= SQUARE_KEYS[getActive()][square] ^ flipKey(flipped);
+    return flipped;
+  }
+  
+  // undo makeMove(square) - must be called with the same player active as the move was made by
+  public void unmakeMove(int square, long flipped)
+  {
+    int count = Long.bitCount(flipped);
+    active_board &= ~(flipped | (1L << square));
+    inactive_board |= flipped;
+    active_count -= count + 1;
+    inactive_count += count;
+    hash ^= SQUARE_KEYS[getActive()][square] ^ flipKey(flipped);
+  }
+  
+  // bitboard of the pieces the active player would capture by playing on 'square'
+  public long flips(int square) { return flips(active_board, inactive_board, square, size); }
+  
+  // pieces captured by 'player' placing on 'square' - for each direction, fill from the
+  // square through the opponent's pieces, and keep the run only if the square beyond it
+  // belongs to the player (the mask below is all ones if so, zero otherwise)
+  public static long flips(long player, long opponent, int square, int size)
+  {
+  	int[] shifts = SHIFTS[size];
+  	long[] left = LEFT_MASKS[size], right = RIGHT_MASKS[size];
+  	long placed = 1L << square;
+  	long flipped = 0;
+  	
+  	for(int d = 0; d < 4; d++)
+  	{
+  		int s = shifts[d];
+  		
+  		long pro = opponent & left[d];
+  		long gen = placed;
+  		gen |= pro & (gen << s);
+  		pro &= pro << s;
+  		gen |= pro & (gen << (2 * s));
+  		pro &= pro << (2 * s);
+  		gen |= pro & (gen << (4 * s));
+  		long end = (gen << s) & left[d] & player;
+  		flipped |= gen & opponent & -((end | -end) >>> 63);
+  		
+  		pro = opponent & right[d];
+  		gen = placed;
+  		gen |= pro & (gen >>> s);
+  		pro &= pro >>> s;
+  		gen |= pro & (gen >>> (2 * s));
+  		pro &= pro >>> (2 * s);
+  		gen |= pro & (gen >>> (4 * s));
+  		end = (gen >>> s) & right[d] & player;
+  		flipped |= gen & opponent & -((end | -end) >>> 63);
+  	}
+  	return flipped;
+  }
+  
+  // last move of the active player
   public Point getLastPlayerMove() {
   	if(active) return new Point(blast % size, blast / size);
   	else return new Point(wlast % size, wlast / size);
   }
+  
+  // last move of the inactive player (the move just played, unless they passed), or null if none
+  public Point getLastOpponentMove() {
+  	int last = active ? wlast : blast;
+  	if(last == -1) return null;
+  	return new Point(last % size, last / size);
+  }
 
   // end current player's turn
   public void turn()
@@ -241,19 +459,11 @@ public class Board
   	{ long tmp = active_board; active_board = inactive_board; inactive_board = tmp; }
   	{ int tmp = active_count; active_count = inactive_count; inactive_count = tmp; }
   	active = !active;
+  	hash ^= SIDE_KEY;
   }
   
   // can the current player make a move?
-  public boolean canMove()
-  {
-    Board tmp = new Board(this); // duplicate board
-    for(int j = 0; j < size; j++)
-    {
-      for(int i = 0; i < size; i++)
-        if(tmp.move(i, j)) { tmp = null; return true; } // try moves
-    }
-    return false;
-  }
+  public boolean canMove() { return getMoveMask() != 0; }
   
   // check if game is over - can either player make a move?
   public boolean gameOver()
@@ -267,143 +477,6 @@ public class Board
     }
   }
   
-  // update piece counts for current player capturing 'flipped' pieces
-  private void updateCount(int flipped)
-  {
-    active_count += flipped;
-    inactive_count -= flipped;
-  }
-  
-  // methods to check whether pieces can be capture in any of the 8 directions
-  // from the current coordinates, and to capture them if they can
-  private void west(int x, int y)
-  {
-    if(x <= 0) return; // can't capture - no room
-    
-    int i;
-    for(i = x; getSquare(i, y, false); i--) // traverse squares that could be captured
-      if(i == 0) return; // can't capture if reached the edge of the board
-      
-    if(i != x && getSquare(i, y, true)) // if capturable square is followed by captured square
-    {
-      updateCount(x - i); // number of squares captured
-      
-      for(i++; i <= x; i++) flipSquare(i, y); // flip them
-    }
-  }
-
-  private void east(int x, int y)
-  {
-    if(x >= size - 1) return;
-  
-    int i;
-    for(i = x; getSquare(i, y, false); i++)
-      if(i == size - 1) return;
-      
-    if(i != x && getSquare(i, y, true))
-    {
-      updateCount(i - x);
-        
-      for(i--; i >= x; i--) flipSquare(i, y);
-    }
-  }
-
-  private void north(int x, int y)
-  {
-    if(y <= 0) return;
-  
-    int i;
-    for(i = y; getSquare(x, i, false); i--)
-      if(i == 0) return;
-      
-    if(i != y && getSquare(x, i, true))
-    {
-      updateCount(y - i);
-      
-      for(i++; i <= y; i++) flipSquare(x, i);
-    }
-  }
-
-  private void south(int x, int y)
-  {
-    if(y >= size - 1) return;
-  
-    int i;
-    for(i = y; getSquare(x, i, false); i++)
-      if(i == size - 1) return;
-      
-    if(i != y && getSquare(x, i, true))
-    {
-      updateCount(i - y);
-      
-      for(i--; i >= y; i--) flipSquare(x, i);
-    }
-  }
-  
-  private void northwest(int x, int y)
-  {
-    if(x <= 0 || y <= 0) return;
-  
-    int i, j;
-    for(i = x, j = y; getSquare(i, j, false); i--, j--)
-      if(i == 0 || j == 0) return;
-      
-    if(i != x && getSquare(i, j, true))
-    {
-      updateCount(x - i);
-        
-      for(i++, j++; i <= x; i++, j++) flipSquare(i, j);
-    }
-  }
-  
-  private void southeast(int x, int y)
-  {
-    if(x >= size - 1 || y >= size - 1) return;
-  
-    int i, j;
-    for(i = x, j = y; getSquare(i, j, false); i++, j++)
-        if(i == size - 1 || j == size - 1) return;
-      
-    if(i != x && getSquare(i, j, true))
-    {
-      updateCount(i - x);
-        
-      for(i--, j--; i >= x; i--, j--) flipSquare(i, j);
-    }
-  }
-
-  private void northeast(int x, int y)
-  {
-    if(x >= size - 1 || y <= 0) return;
-    
-    int i, j;
-    for(i = x, j = y; getSquare(i, j, false); i++, j--)
-        if(i == size - 1 || j == 0) return;
-      
-    if(i != x && getSquare(i, j, true))
-    {
-      updateCount(i - x);
-      
-      for(i--, j++; i >= x; i--, j++) flipSquare(i, j);
-    }
-  }
-  
-  private void southwest(int x, int y)
-  {
-    if(x <= 0 || y >= size - 1) return;
-    
-    int i, j;
-    for(i = x, j = y; getSquare(i, j, false); i--, j++)
-      if(i == 0 || j == size - 1) return;
-      
-    if(i != x && getSquare(i, j, true))
-    {
-      updateCount(x - i);
-        
-      for(i++, j--; i <= x; i++, j--) flipSquare(i, j);
-    }
-  }
-  
   // ASCII printout of the current board
   public void print()
   {
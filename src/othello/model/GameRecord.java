@@ -0,0 +1,96 @@
+package othello.model;
+
+import java.util.Arrays;
+
+// one finished game, as stored by GameRecordWriter and read back by GameRecordReader
+// the engines that played it, their search depths and seeds, the moves (a square each, or PASS)
+// with the time spent on each, and the result. only passes the other side moved after are
+// moves - when neither side can move the game is over, and nothing more is recorded
+//
+// the seeds (ReversiAI.getSeed) are for information only. an engine's Random carries on from
+// game to game, and parallel search and pondering depend on thread timing, so playing again
+// from the seeds need not give the same game - the moves themselves are the record
+// mutable and reusable - a reader fills the same record game after game
+public class GameRecord
+{
+	public static final int PASS = -1;
+	
+	private int size;
+	private String[] names = new String[2]; // by colour, Board.BLACK / WHITE
+	private int[] depths = new int[2];
+	private long[] seeds = new long[2];
+	
+	private int count = 0;
+	private byte[] moves = new byte[128]; // squares, or PASS
+	private int[] micros = new int[128]; // think time of each move, in microseconds
+	
+	private int winner = Board.EMPTY; // Board.EMPTY for a tie
+	private int blackDiscs, whiteDiscs;
+	
+	// start a new game between the given engines
+	public void start(int size, String black, int blackDepth, long blackSeed, String white, int whiteDepth, long whiteSeed)
+	{
+		this.size = size;
+		names[Board.BLACK] = black;
+		names[Board.WHITE] = white;
+		depths[Board.BLACK] = blackDepth;
+		depths[Board.WHITE] = whiteDepth;
+		seeds[Board.BLACK] = blackSeed;
+		seeds[Board.WHITE] = whiteSeed;
+		count = 0;
+		winner = Board.EMPTY;
+		blackDiscs = whiteDiscs = 0;
+	}
+	
+	// the next move - a square (y * size + x) or PASS - and how long it took to choose
+	public void addMove(int square, long nanos)
+	{
+		if(count == moves.length)
+		{
+			moves = Arrays.copyOf(moves, 2 * count);
+			micros = Arrays.copyOf(micros, 2 * count);
+		}
+		moves[count] = (byte)square;
+		micros[count++] = (int)Math.min(nanos / 1000, Integer.MAX_VALUE);
+	}
+	
+	// the final position
+	public void finish(Board b)
+	{
+		winner = b.getWinning();
+		boolean blackActive = (b.getActive() == Board.BLACK);
+		blackDiscs = b.getTotal(blackActive);
+		whiteDiscs = b.getTotal(!blackActive);
+	}
+	
+	void setResult(int winner, int blackDiscs, int whiteDiscs)
+	{
+		this.winner = winner;
+		this.blackDiscs = blackDiscs;
+		this.whiteDiscs = whiteDiscs;
+	}
+	
+	public int getSize() { return size; }
+	public String getName(int colour) { return names[colour]; }
+	public int getDepth(int colour) { return depths[colour]; }
+	public long getSeed(int colour) { return seeds[colour]; }
+	
+	public int getMoveCount() { return count; }
+	public int getMove(int i) { return moves[i]; }
+	public int getThinkMicros(int i) { return micros[i]; }
+	
+	public int getWinner() { return winner; }
+	public int getDiscs(int colour) { return (colour == Board.BLACK) ? blackDiscs : whiteDiscs; }
+	
+	// the position after the first 'plies' moves (passes included), black to move first
+	public Board replay(int plies)
+	{
+		Board b = new Board(size);
+		for(int i = 0; i < plies; i++)
+		{
+			if(moves[i] != PASS) b.move(moves[i]);
+			b.turn();
+		}
+		return b;
+	}
+}
@@ -0,0 +1,115 @@
+package othello.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// streams the games of a GameRecordWriter file back, one at a time, into a GameRecord the
+// caller reuses - so reading a million games keeps only one of them in memory
+public class GameRecordReader implements Closeable
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	
+	// last name read for each colour - reused while the bytes are the same
+	private final String[] names = new String[2];
+	private final byte[][] encoded = new byte[2][];
+	
+	// header fields of the game being read, by colour
+	private final String[] players = new String[2];
+	private final int[] depths = new int[2];
+	private final long[] seeds = new long[2];
+	
+	public GameRecordReader(Path path) throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		buffer.flip(); // empty, ready to be filled
+		if(!fill(5) || buffer.getInt() != GameRecordWriter.MAGIC) throw new IOException("Not a game record file");
+		if(buffer.get() != GameRecordWriter.VERSION) throw new IOException("Unknown game record version");
+	}
+	
+	// read the next game into 'g' - false at the end of the file
+	public boolean next(GameRecord g) throws IOException
+	{
+		if(!fill(4)) return false;
+		int length = buffer.getInt();
+		if(!fill(length)) throw new EOFException("Truncated game record");
+		
+		int size = buffer.get();
+		for(int colour = Board.BLACK; colour <= Board.WHITE; colour++)
+		{
+			players[colour] = decode(colour, buffer.get() & 0xFF);
+			depths[colour] = buffer.get();
+			seeds[colour] = buffer.getLong();
+		}
+		g.start(size, players[Board.BLACK], depths[Board.BLACK], seeds[Board.BLACK],
+				players[Board.WHITE], depths[Board.WHITE], seeds[Board.WHITE]);
+		
+		int winner = buffer.get(), blackDiscs = buffer.get() & 0xFF, whiteDiscs = buffer.get() & 0xFF;
+		g.setResult(winner, blackDiscs, whiteDiscs);
+		
+		int count = buffer.getShort() & 0xFFFF, movesAt = buffer.position();
+		buffer.position(movesAt + count);
+		for(int i = 0; i < count; i++)
+		{
+			long t = 0;
+			for(int shift = 0; ; shift += 7)
+			{
+				int b = buffer.get();
+				t |= (long)(b & 0x7F) << shift;
+				if((b & 0x80) == 0) break;
+			}
+			g.addMove(buffer.get(movesAt + i), t * 1000);
+		}
+		return true;
+	}
+	
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+	
+	// make sure at least n bytes are buffered - false if the file ends first
+	private boolean fill(int n) throws IOException
+	{
+		if(n > buffer.capacity()) throw new IOException("Game record too long");
+		if(buffer.remaining() >= n) return true;
+		
+		buffer.compact();
+		while(buffer.position() < n)
+		{
+			if(channel.read(buffer) < 0)
+			{
+				buffer.flip();
+				if(buffer.hasRemaining() && buffer.remaining() < n) throw new EOFException("Truncated game record");
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+	
+	// a name of 'length' UTF-8 bytes at the buffer position
+	private String decode(int colour, int length)
+	{
+		byte[] last = encoded[colour];
+		boolean same = (last != null && last.length == length);
+		for(int i = 0; same && i < length; i++) same = (buffer.get(buffer.position() + i) == last[i]);
+		
+		if(!same)
+		{
+			byte[] bytes = new byte[length];
+			buffer.get(bytes, 0, length);
+			encoded[colour] = bytes;
+			names[colour] = new String(bytes, GameRecordWriter.UTF8);
+		}
+		else buffer.position(buffer.position() + length);
+		return names[colour];
+	}
+}
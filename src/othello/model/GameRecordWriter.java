@@ -0,0 +1,112 @@
+package othello.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// append-only binary log of finished games, for keeping every game of a long batch run
+//
+// the file starts with MAGIC and VERSION, then one record per game:
+//   int     length of the rest of the record
+//   byte    board size
+//   for black then white: byte name length, UTF-8 name, byte depth, long seed (informational)
+//   byte    winner (Board.BLACK, WHITE, or EMPTY for a tie), byte black discs, byte white discs
+//   short   number of moves, passes included (but not the game over, which isn't a move)
+//   byte    per move - the square (y * size + x), or -1 for a pass
+//   varint  per move - think time in microseconds, 7 bits a byte, low bits first
+//
+// records are gathered in a buffer and written through a FileChannel when it fills, so a game
+// costs a few hundred bytes and no objects. thread-safe - workers can share one writer
+public class GameRecordWriter implements Closeable
+{
+	public static final int MAGIC = 0x4F544752; // "OTGR"
+	public static final byte VERSION = 1;
+	
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_RECORD = 2048; // bigger than any record of a game on an 8 x 8 board
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	
+	// last name written for each colour and its encoding - the same engines play game after game
+	private final String[] names = new String[2];
+	private final byte[][] encoded = new byte[2][];
+	
+	// open 'path' for appending, creating it (with its header) if it doesn't exist
+	public GameRecordWriter(Path path) throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if(channel.size() == 0)
+		{
+			buffer.putInt(MAGIC);
+			buffer.put(VERSION);
+		}
+	}
+	
+	public synchronized void write(GameRecord g) throws IOException
+	{
+		if(buffer.remaining() < MAX_RECORD) flush();
+		
+		int start = buffer.position();
+		buffer.putInt(0); // length, filled in below
+		buffer.put((byte)g.getSize());
+		for(int colour = Board.BLACK; colour <= Board.WHITE; colour++)
+		{
+			byte[] name = encode(colour, g.getName(colour));
+			buffer.put((byte)name.length);
+			buffer.put(name);
+			buffer.put((byte)g.getDepth(colour));
+			buffer.putLong(g.getSeed(colour));
+		}
+		buffer.put((byte)g.getWinner());
+		buffer.put((byte)g.getDiscs(Board.BLACK));
+		buffer.put((byte)g.getDiscs(Board.WHITE));
+		
+		int count = g.getMoveCount();
+		buffer.putShort((short)count);
+		for(int i = 0; i < count; i++) buffer.put((byte)g.getMove(i));
+		for(int i = 0; i < count; i++)
+		{
+			int t = g.getThinkMicros(i);
+			for(; (t & ~0x7F) != 0; t >>>= 7) buffer.put((byte)((t & 0x7F) | 0x80));
+			buffer.put((byte)t);
+		}
+		
+		buffer.putInt(start, buffer.position() - start - 4);
+	}
+	
+	// write out everything buffered so far
+	public synchronized void flush() throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+	
+	public synchronized void close() throws IOException
+	{
+		flush();
+		channel.close();
+	}
+	
+	// UTF-8 bytes of a name, at most 255 of them
+	private byte[] encode(int colour, String name)
+	{
+		if(name == null) name = "";
+		if(!name.equals(names[colour]))
+		{
+			byte[] bytes = name.getBytes(UTF8);
+			if(bytes.length > 255) bytes = Arrays.copyOf(bytes, 255);
+			names[colour] = name;
+			encoded[colour] = bytes;
+		}
+		return encoded[colour];
+	}
+}
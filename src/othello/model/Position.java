@@ -0,0 +1,52 @@
+package othello.model;
+
+// immutable snapshot of a board position - both bitboards plus the side to move
+// unlike Board, it is safe to keep as a key in hash-based caches
+
+public final class Position
+{
+  private final long player;   // pieces of the side to move
+  private final long opponent; // pieces of the other side
+  private final int active;    // side to move - Board.BLACK or Board.WHITE
+  private final long key;      // Zobrist key, same as Board.getHash()
+  
+  public Position(long player, long opponent, int active)
+  {
+    this(player, opponent, active, (active == Board.BLACK) ?
+    		Board.zobrist(player, opponent, active) : Board.zobrist(opponent, player, active));
+  }
+  
+  Position(long player, long opponent, int active, long key)
+  {
+    this.player = player;
+    this.opponent = opponent;
+    this.active = active;
+    this.key = key;
+  }
+  
+  public long getPlayer() { return player; }
+  public long getOpponent() { return opponent; }
+  public int getActive() { return active; }
+  public long getKey() { return key; }
+  
+  // hash shared with Board.hashCode, so a board and its snapshot agree
+  static int hash(long key) { return (int)(key ^ (key >>> 32)); }
+  
+  @Override
+  public int hashCode() { return hash(key); }
+  
+  @Override
+  public boolean equals(Object o)
+  {
+    if(this == o) return true;
+    if(!(o instanceof Position)) return false;
+    Position right = (Position)o;
+    return player == right.player && opponent == right.opponent && active == right.active;
+  }
+  
+  @Override
+  public String toString()
+  {
+    return String.format("%s to move: %016x / %016x", active == Board.BLACK ? "Black" : "White", player, opponent);
+  }
+}
@@ -30,11 +30,13 @@ import othello.model.Listener;
 @SuppressWarnings("serial")
 public class TestFrame extends JFrame implements ActionListener, Logger, Listener {
 	private static Border THIN_BORDER = new EmptyBorder(4, 4, 4, 4);
+	private static final int TABLE_MB = 4; // transposition table of each test engine - one pair per processor
 
 	public static final String AI[] = { ReversiAI.Types.GREEDY, ReversiAI.Types.RANDOM,
 			ReversiAI.Types.HEURISTIC, ReversiAI.Types.PLUGGABLE,
 			ReversiAI.Types.MINIMAX, ReversiAI.Types.MINIMAX_AB, ReversiAI.Types.MINIMAX_AB_ORD,
-			ReversiAI.Types.MINIMAX_AB_MCUT, ReversiAI.Types.MINIMAX_AB_HEU };
+			ReversiAI.Types.MINIMAX_AB_MCUT, ReversiAI.Types.MINIMAX_AB_HEU,
+			ReversiAI.Types.MINIMAX_AB_PAT, ReversiAI.Types.MINIMAX_AB_PLUG };
 
 	public JComboBox leftAICombo;
 	public JComboBox rightAICombo;
@@ -143,8 +145,8 @@ public class TestFrame extends JFrame implements ActionListener, Logger, Listene
 		String s_leftAI = (String) leftAICombo.getSelectedItem();
 		String s_rightAI = (String) rightAICombo.getSelectedItem();
 
-		final ReversiAI leftAI = ReversiAI.getAIByName(s_leftAI);
-		final ReversiAI rightAI = ReversiAI.getAIByName(s_rightAI);
+		final TestController.AIFactory leftAI = TestController.byName(s_leftAI, TABLE_MB);
+		final TestController.AIFactory rightAI = TestController.byName(s_rightAI, TABLE_MB);
 		
 		final ReversiAI blackAI = ReversiAI.getAIByName(s_leftAI);
 		final ReversiAI whiteAI = ReversiAI.getAIByName(s_rightAI);
@@ -186,6 +188,7 @@ public class TestFrame extends JFrame implements ActionListener, Logger, Listene
 				
 				TestController testController = new TestController(8, leftAI,
 						rightAI);
+				testController.setWorkers(Runtime.getRuntime().availableProcessors());
 				testController.setLogger(TestFrame.this);
 				testController.run(runcount, new TestController.TestObserver() {
 					